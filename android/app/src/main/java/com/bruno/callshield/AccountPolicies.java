@@ -0,0 +1,318 @@
+package com.bruno.callshield;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Bundle;
+import android.telecom.PhoneAccount;
+import android.telecom.PhoneAccountHandle;
+import android.telecom.TelecomManager;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Políticas de triagem por linha (PhoneAccountHandle) em aparelhos com mais de um SIM ou conta SIP.
+ *
+ * Cada linha configurada pode sobrescrever as configurações globais e ter regras próprias.
+ * Tudo é compilado fora da triagem, sempre que as preferências mudam, num snapshot imutável
+ * com um mapa de linhas; a triagem escolhe a política com uma única consulta ao mapa.
+ * Linhas sem configuração própria usam a política padrão. Regras idênticas em várias linhas
+ * são compiladas uma vez e compartilhadas, e as listas globais nunca são copiadas por linha.
+ */
+public class AccountPolicies {
+    private static final String TAG = "AccountPolicies";
+    private static final String PREFS_NAME = "AccountPolicyPrefs";
+    private static final String KEY_ACCOUNTS = "accounts";
+    private static final String ENTRIES_PREFIX = "entries:";
+
+    // Configurações que uma linha pode sobrescrever, com os valores padrão globais
+    static final String[] SETTING_KEYS = {
+        CallBlockerService.KEY_BLOCK_ANONYMOUS,
+        CallBlockerService.KEY_BLOCK_NO_VALID_NUMBER,
+        CallBlockerService.KEY_BLOCK_FAILED_VERIFICATION,
+        CallBlockerService.KEY_BLOCK_SPAM_SCORE
+    };
+    static final boolean[] SETTING_DEFAULTS = { false, false, true, false };
+    static final int SETTING_BLOCK_ANONYMOUS = 0;
+    static final int SETTING_BLOCK_NO_VALID_NUMBER = 1;
+    static final int SETTING_BLOCK_FAILED_VERIFICATION = 2;
+    static final int SETTING_BLOCK_SPAM_SCORE = 3;
+
+    // Singleton instance
+    public static final AccountPolicies INSTANCE = new AccountPolicies();
+
+    /**
+     * Snapshot imutável: política padrão e políticas das linhas configuradas
+     */
+    private static final class Snapshot {
+        final ScreeningPolicy defaultPolicy;
+        final Map<String, ScreeningPolicy> accounts;
+        final Map<Set<String>, ScreeningPolicy.Rules> rules;
+
+        Snapshot(ScreeningPolicy defaultPolicy, Map<String, ScreeningPolicy> accounts,
+                 Map<Set<String>, ScreeningPolicy.Rules> rules) {
+            this.defaultPolicy = defaultPolicy;
+            this.accounts = accounts;
+            this.rules = rules;
+        }
+    }
+
+    // As compilações são feitas uma de cada vez, fora da thread principal
+    private final Executor compileExecutor = Executors.newSingleThreadExecutor();
+
+    private Context context;
+    private SharedPreferences servicePreferences;
+    private SharedPreferences preferences;
+
+    // Geração do estado compartilhado por todas as linhas (listas, feed, detector, modelo);
+    // as políticas descartam as decisões em cache tomadas numa geração anterior
+    private final AtomicLong decisionGeneration = new AtomicLong();
+
+    private volatile Snapshot snapshot = new Snapshot(
+            new ScreeningPolicy(null, SETTING_DEFAULTS.clone(), ScreeningPolicy.Rules.EMPTY),
+            Collections.emptyMap(), Collections.emptyMap());
+
+    // Mantidos em campos: o SharedPreferences guarda apenas uma referência fraca aos listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener settingsListener = (prefs, key) -> {
+        if (key == null || indexOfSetting(key) >= 0) {
+            compileExecutor.execute(this::compile);
+        }
+    };
+    private final SharedPreferences.OnSharedPreferenceChangeListener policyListener =
+            (prefs, key) -> compileExecutor.execute(this::compile);
+
+    private AccountPolicies() {
+    }
+
+    // Método para inicializar o contexto (compila o primeiro snapshot antes de retornar)
+    public synchronized void initialize(Context appContext) {
+        if (this.context == null) {
+            this.context = appContext.getApplicationContext();
+            this.servicePreferences = context.getSharedPreferences(CallBlockerService.PREFS_NAME, Context.MODE_PRIVATE);
+            this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            compile();
+            servicePreferences.registerOnSharedPreferenceChangeListener(settingsListener);
+            preferences.registerOnSharedPreferenceChangeListener(policyListener);
+        }
+    }
+
+    /**
+     * Política da linha que recebe a chamada
+     * @param handle Conta da chamada (Call.Details.getAccountHandle), pode ser null
+     */
+    ScreeningPolicy select(PhoneAccountHandle handle) {
+        Snapshot current = snapshot;
+        if (handle == null || current.accounts.isEmpty()) {
+            return current.defaultPolicy;
+        }
+        ScreeningPolicy policy = current.accounts.get(accountId(handle));
+        return policy != null ? policy : current.defaultPolicy;
+    }
+
+    // Identificador estável de uma linha (componente do ConnectionService + id da conta)
+    static String accountId(PhoneAccountHandle handle) {
+        return handle.getComponentName().flattenToShortString() + "/" + handle.getId();
+    }
+
+    // Geração atual, lida pela triagem antes de consultar o cache da política
+    long decisionGeneration() {
+        return decisionGeneration.get();
+    }
+
+    /**
+     * Invalida as decisões em cache de todas as linhas. Chamado por quem altera o estado
+     * compartilhado, depois de publicá-lo; cada política esvazia o cache na próxima consulta.
+     */
+    public void invalidateDecisions() {
+        decisionGeneration.incrementAndGet();
+    }
+
+    /**
+     * Substitui a configuração de uma linha
+     * @param accountId Identificador da linha (accountId)
+     * @param settings Configurações sobrescritas (chaves de SETTING_KEYS); as ausentes seguem as globais
+     * @param types Tipos das entradas (BulkTransfer.TYPE_*)
+     * @param blocked Se cada entrada é de bloqueio
+     * @param values Valores das entradas
+     * @return quantidade de entradas recusadas (faixas ou padrões inválidos)
+     */
+    int configure(String accountId, Bundle settings, int[] types, boolean[] blocked, String[] values) {
+        if (accountId == null || accountId.isEmpty()) {
+            throw new IllegalArgumentException("Linha não informada");
+        }
+
+        // Valida as entradas com o mesmo código da compilação; só as aceitas são salvas
+        Set<String> entries = new HashSet<>();
+        int rejected = 0;
+        for (int i = 0; values != null && i < values.length; i++) {
+            // Endereços IP não se aplicam à triagem nativa
+            boolean supported = types[i] == BulkTransfer.TYPE_PHONE || types[i] == BulkTransfer.TYPE_RANGE
+                    || types[i] == BulkTransfer.TYPE_PATTERN;
+            String entry = encodeEntry(types[i], blocked[i], values[i]);
+            CustomListBuilder check = new CustomListBuilder();
+            if (supported) {
+                visitEntry(entry, check);
+            }
+            if (supported && check.getRejected() == 0) {
+                entries.add(entry);
+            } else {
+                rejected++;
+            }
+        }
+
+        Set<String> accounts = new HashSet<>(preferences.getStringSet(KEY_ACCOUNTS, new HashSet<>()));
+        accounts.add(accountId);
+        SharedPreferences.Editor editor = preferences.edit()
+                .putStringSet(KEY_ACCOUNTS, accounts)
+                .putStringSet(ENTRIES_PREFIX + accountId, entries);
+        for (String key : SETTING_KEYS) {
+            if (settings != null && settings.containsKey(key)) {
+                editor.putBoolean(settingKey(key, accountId), settings.getBoolean(key));
+            } else {
+                editor.remove(settingKey(key, accountId));
+            }
+        }
+        editor.apply();
+        return rejected;
+    }
+
+    // Remove a configuração própria de uma linha, que volta à política padrão
+    void remove(String accountId) {
+        Set<String> accounts = new HashSet<>(preferences.getStringSet(KEY_ACCOUNTS, new HashSet<>()));
+        accounts.remove(accountId);
+        SharedPreferences.Editor editor = preferences.edit()
+                .putStringSet(KEY_ACCOUNTS, accounts)
+                .remove(ENTRIES_PREFIX + accountId);
+        for (String key : SETTING_KEYS) {
+            editor.remove(settingKey(key, accountId));
+        }
+        editor.apply();
+    }
+
+    /**
+     * Linhas disponíveis no aparelho (requer READ_PHONE_STATE) e linhas com política própria
+     */
+    void describeAccounts(Bundle out) {
+        ArrayList<String> ids = new ArrayList<>();
+        ArrayList<String> labels = new ArrayList<>();
+        ArrayList<String> addresses = new ArrayList<>();
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_PHONE_STATE) == PackageManager.PERMISSION_GRANTED) {
+            try {
+                TelecomManager telecomManager = (TelecomManager) context.getSystemService(Context.TELECOM_SERVICE);
+                List<PhoneAccountHandle> handles = telecomManager.getCallCapablePhoneAccounts();
+                for (PhoneAccountHandle handle : handles) {
+                    PhoneAccount account = telecomManager.getPhoneAccount(handle);
+                    Uri address = account != null ? account.getAddress() : null;
+                    ids.add(accountId(handle));
+                    labels.add(account != null && account.getLabel() != null ? account.getLabel().toString() : "");
+                    addresses.add(address != null && address.getSchemeSpecificPart() != null ? address.getSchemeSpecificPart() : "");
+                }
+            } catch (SecurityException e) {
+                Log.w(TAG, "Sem permissão para listar as linhas", e);
+            }
+        }
+        out.putStringArrayList("ids", ids);
+        out.putStringArrayList("labels", labels);
+        out.putStringArrayList("addresses", addresses);
+        out.putStringArrayList("configured", new ArrayList<>(preferences.getStringSet(KEY_ACCOUNTS, new HashSet<>())));
+    }
+
+    // Compila um novo snapshot; políticas e regras que não mudaram são reaproveitadas com seus caches
+    private void compile() {
+        Snapshot previous = snapshot;
+        try {
+            boolean[] defaults = new boolean[SETTING_KEYS.length];
+            for (int i = 0; i < SETTING_KEYS.length; i++) {
+                defaults[i] = servicePreferences.getBoolean(SETTING_KEYS[i], SETTING_DEFAULTS[i]);
+            }
+            ScreeningPolicy defaultPolicy = reuseOrCreate(previous.defaultPolicy, null, defaults, ScreeningPolicy.Rules.EMPTY);
+
+            Map<String, ScreeningPolicy> accounts = new HashMap<>();
+            Map<Set<String>, ScreeningPolicy.Rules> rulesByEntries = new HashMap<>();
+            for (String accountId : preferences.getStringSet(KEY_ACCOUNTS, new HashSet<>())) {
+                boolean[] settings = defaults.clone();
+                for (int i = 0; i < SETTING_KEYS.length; i++) {
+                    String key = settingKey(SETTING_KEYS[i], accountId);
+                    if (preferences.contains(key)) {
+                        settings[i] = preferences.getBoolean(key, settings[i]);
+                    }
+                }
+
+                // Linhas com as mesmas entradas compartilham as regras compiladas
+                Set<String> entries = new HashSet<>(preferences.getStringSet(ENTRIES_PREFIX + accountId, new HashSet<>()));
+                ScreeningPolicy.Rules rules = rulesByEntries.get(entries);
+                if (rules == null) {
+                    rules = previous.rules.get(entries);
+                    if (rules == null) {
+                        rules = compileRules(entries);
+                    }
+                    rulesByEntries.put(entries, rules);
+                }
+
+                accounts.put(accountId, reuseOrCreate(previous.accounts.get(accountId), accountId, settings, rules));
+            }
+
+            snapshot = new Snapshot(defaultPolicy, accounts, rulesByEntries);
+            Log.d(TAG, "Políticas compiladas: " + accounts.size() + " linha(s), " + rulesByEntries.size() + " conjunto(s) de regras");
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao compilar as políticas por linha", e);
+        }
+    }
+
+    private static ScreeningPolicy reuseOrCreate(ScreeningPolicy previous, String accountId, boolean[] settings,
+                                                 ScreeningPolicy.Rules rules) {
+        if (previous != null && previous.rules == rules && previous.blockAnonymous == settings[SETTING_BLOCK_ANONYMOUS]
+                && previous.blockNoValidNumber == settings[SETTING_BLOCK_NO_VALID_NUMBER]
+                && previous.blockFailedVerification == settings[SETTING_BLOCK_FAILED_VERIFICATION]
+                && previous.blockSpamScore == settings[SETTING_BLOCK_SPAM_SCORE]) {
+            return previous;
+        }
+        return new ScreeningPolicy(accountId, settings, rules);
+    }
+
+    private static ScreeningPolicy.Rules compileRules(Set<String> entries) {
+        CustomListBuilder builder = new CustomListBuilder();
+        for (String entry : entries) {
+            visitEntry(entry, builder);
+        }
+        return builder.toRules();
+    }
+
+    // Entradas salvas como "<tipo><b|a>:<valor>"
+    private static String encodeEntry(int type, boolean blocked, String value) {
+        return type + (blocked ? "b:" : "a:") + value;
+    }
+
+    private static void visitEntry(String entry, CustomListBuilder builder) {
+        if (entry.length() >= 3 && entry.charAt(2) == ':') {
+            builder.visit(entry.charAt(0) - '0', entry.charAt(1) == 'b', entry.substring(3));
+        }
+    }
+
+    private static String settingKey(String key, String accountId) {
+        return key + ":" + accountId;
+    }
+
+    static int indexOfSetting(String key) {
+        for (int i = 0; i < SETTING_KEYS.length; i++) {
+            if (SETTING_KEYS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,242 @@
+package com.bruno.callshield;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+/**
+ * Transferência em lote de listas grandes entre o app e o código nativo.
+ *
+ * Em vez de um JSON com uma entrada por objeto, os registros são empacotados num arquivo
+ * privado (cacheDir/bulk/&lt;handle&gt;.blk) e apenas o handle cruza a ponte do Capacitor.
+ * O app envia o arquivo em blocos base64; o nativo devolve o caminho para leitura direta
+ * pela WebView (Capacitor.convertFileSrc). Mesmo formato de src/lib/bulkTransfer.ts.
+ *
+ * Formato (big-endian):
+ *   int    MAGIC ("BLK1")
+ *   byte   tipo de conteúdo (KIND_*), 3 bytes reservados
+ *   int    quantidade de registros
+ *   registros: byte flags (tipo da entrada nos 2 bits inferiores, FLAG_BLOCKED),
+ *              unsigned short tamanho, bytes UTF-8 do valor
+ */
+public final class BulkTransfer {
+    public static final int MAGIC = 0x424C4B31; // "BLK1"
+    public static final int KIND_CUSTOM_LIST = 1;
+
+    // Tipos de entrada da lista personalizada
+    public static final int TYPE_PHONE = 0;
+    public static final int TYPE_RANGE = 1;
+    public static final int TYPE_PATTERN = 2;
+    public static final int TYPE_IP = 3;
+    public static final int FLAG_BLOCKED = 0x80;
+    private static final int TYPE_MASK = 0x03;
+
+    private static final String DIR = "bulk";
+    private static final String EXTENSION = ".blk";
+    private static final int HEADER_SIZE = 12;
+    private static final int MAX_VALUE_BYTES = 0xFFFF;
+    private static final long MAX_TRANSFER_SIZE = 64L * 1024 * 1024;
+    private static final long STALE_AGE_MS = 60 * 60 * 1000L;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private BulkTransfer() {
+    }
+
+    /**
+     * Recebe cada registro durante a leitura
+     */
+    public interface RecordVisitor {
+        void visit(int type, boolean blocked, String value);
+    }
+
+    /**
+     * Cria um arquivo vazio para uma nova transferência
+     * @return handle da transferência
+     */
+    public static String begin(Context context) throws IOException {
+        File dir = directory(context);
+        removeStale(dir);
+
+        byte[] bytes = new byte[8];
+        random.nextBytes(bytes);
+        StringBuilder handle = new StringBuilder(16);
+        for (byte b : bytes) {
+            handle.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        File file = new File(dir, handle + EXTENSION);
+        if (!file.createNewFile()) {
+            throw new IOException("Não foi possível criar a transferência");
+        }
+        return handle.toString();
+    }
+
+    /**
+     * Acrescenta um bloco ao fim do arquivo
+     * @param offset Posição esperada do bloco (detecta blocos perdidos ou repetidos)
+     * @return novo tamanho do arquivo
+     */
+    public static long append(Context context, String handle, long offset, byte[] chunk) throws IOException {
+        File file = file(context, handle);
+        if (file.length() != offset) {
+            throw new IOException("Bloco fora de ordem: esperado " + file.length() + ", recebido " + offset);
+        }
+        if (offset + chunk.length > MAX_TRANSFER_SIZE) {
+            throw new IOException("Transferência grande demais");
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(chunk);
+        }
+        return offset + chunk.length;
+    }
+
+    /**
+     * Arquivo de uma transferência existente
+     * @throws IOException se o handle for inválido ou a transferência não existir
+     */
+    public static File file(Context context, String handle) throws IOException {
+        if (handle == null || !handle.matches("[0-9a-f]{16}")) {
+            throw new IOException("Handle de transferência inválido");
+        }
+        File file = new File(directory(context), handle + EXTENSION);
+        if (!file.isFile()) {
+            throw new IOException("Transferência não encontrada: " + handle);
+        }
+        return file;
+    }
+
+    // Descarta uma transferência (ignora handles inexistentes)
+    public static void release(Context context, String handle) {
+        try {
+            file(context, handle).delete();
+        } catch (IOException e) {
+            // Já removida
+        }
+    }
+
+    /**
+     * Lê os registros em fluxo, sem carregar o arquivo inteiro na memória
+     * @return quantidade de registros lidos
+     */
+    public static int read(File file, int expectedKind, RecordVisitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Arquivo de transferência inválido");
+            }
+            int kind = in.readUnsignedByte();
+            in.skipBytes(3);
+            if (kind != expectedKind) {
+                throw new IOException("Conteúdo inesperado na transferência: " + kind);
+            }
+            int count = in.readInt();
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int flags = in.readUnsignedByte();
+                int length = in.readUnsignedShort();
+                if (length > buffer.length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                visitor.visit(flags & TYPE_MASK, (flags & FLAG_BLOCKED) != 0,
+                        new String(buffer, 0, length, StandardCharsets.UTF_8));
+            }
+            if (in.read() != -1) {
+                throw new IOException("Dados após o último registro");
+            }
+            return count;
+        } catch (EOFException e) {
+            throw new IOException("Transferência incompleta", e);
+        }
+    }
+
+    /**
+     * Grava registros num arquivo de transferência; a quantidade é fixada no close()
+     */
+    public static final class Writer implements Closeable {
+        private final File file;
+        private final DataOutputStream out;
+        private int count;
+
+        public Writer(File file, int kind) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeByte(kind);
+            out.write(new byte[3]);
+            out.writeInt(0);
+        }
+
+        public void write(int type, boolean blocked, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_VALUE_BYTES) {
+                throw new IOException("Valor longo demais para a transferência");
+            }
+            out.writeByte((type & TYPE_MASK) | (blocked ? FLAG_BLOCKED : 0));
+            out.writeShort(bytes.length);
+            out.write(bytes);
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            try (RandomAccessFile header = new RandomAccessFile(file, "rw")) {
+                header.seek(HEADER_SIZE - 4);
+                header.writeInt(count);
+            }
+        }
+    }
+
+    // Tipo de entrada a partir do campo "type" da lista do app, ou -1 se desconhecido
+    public static int typeOf(String type) {
+        if ("phone".equals(type)) {
+            return TYPE_PHONE;
+        } else if ("range".equals(type)) {
+            return TYPE_RANGE;
+        } else if ("pattern".equals(type)) {
+            return TYPE_PATTERN;
+        } else if ("ip".equals(type)) {
+            return TYPE_IP;
+        }
+        return -1;
+    }
+
+    private static File directory(Context context) throws IOException {
+        File dir = new File(context.getCacheDir(), DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar o diretório de transferências");
+        }
+        return dir;
+    }
+
+    // Transferências abandonadas (app encerrado no meio do envio)
+    private static void removeStale(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > STALE_AGE_MS) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -6,10 +6,12 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.telecom.Call;
 import android.telecom.CallScreeningService;
+import android.telecom.Connection;
+import android.telecom.TelecomManager;
 import android.util.Log;
-import android.util.LruCache;
 
 import androidx.annotation.RequiresApi;
 
@@ -19,12 +21,25 @@ import java.util.concurrent.Executors;
 @RequiresApi(api = Build.VERSION_CODES.N)
 public class CallBlockerService extends CallScreeningService {
     private static final String TAG = "CallBlockerService";
-    private static final String PREFS_NAME = "CallBlockerPrefs";
-    private static final String KEY_IS_ACTIVE = "isActive";
-    private static final int CACHE_SIZE = 100; // Tamanho do cache para números recentes
+    static final String PREFS_NAME = "CallBlockerPrefs";
+    static final String KEY_IS_ACTIVE = "isActive";
+    static final String KEY_BLOCK_ANONYMOUS = "blockAnonymous";
+    static final String KEY_BLOCK_NO_VALID_NUMBER = "blockNoValidNumber";
+    static final String KEY_BLOCK_FAILED_VERIFICATION = "blockFailedVerification";
+    static final String KEY_BLOCK_SPAM_SCORE = "blockSpamScore";
     
-    // Cache para armazenar resultados de bloqueio recentes
-    private final LruCache<String, Boolean> blockCache = new LruCache<>(CACHE_SIZE);
+    // Códigos de motivo (os valores em comum usam os mesmos nomes de BlockedCall.callType no app)
+    static final String REASON_ANONYMOUS = "anonymous";
+    static final String REASON_NO_VALID_NUMBER = "no_valid_number";
+    static final String REASON_NEIGHBOR_SPOOF = "neighbor_spoof";
+    static final String REASON_USER_BLOCKED = "user_blocked";
+    static final String REASON_VERIFICATION_FAILED = "verification_failed";
+    static final String REASON_SPAM_SCORE = "spam_score";
+    static final String REASON_SPAM_FEED = "spam_feed";
+    static final String REASON_SPAM_PATTERN = "spam_pattern";
+    
+    // Status de verificação em APIs sem STIR/SHAKEN (fora dos valores de Connection)
+    private static final int VERIFICATION_UNAVAILABLE = -1;
     
     // Executor para processamento em segundo plano
     private final Executor backgroundExecutor = Executors.newSingleThreadExecutor();
@@ -36,7 +51,18 @@ public class CallBlockerService extends CallScreeningService {
     private SharedPreferences preferences;
     
     // Flag para controlar se o serviço está ativo
-    private boolean isServiceActive = true;
+    private volatile boolean isServiceActive = true;
+    
+    // Observa a ativação feita pelo app enquanto o serviço está vivo; as configurações de
+    // bloqueio chegam já compiladas nas políticas por linha (AccountPolicies), e alterações
+    // de listas, sincronização, detector de vizinhos e modelo invalidam as decisões em cache
+    // pela geração de AccountPolicies.invalidateDecisions.
+    // Mantido num campo: o SharedPreferences guarda apenas uma referência fraca ao listener.
+    private final SharedPreferences.OnSharedPreferenceChangeListener configListener = (prefs, key) -> {
+        if (key == null || KEY_IS_ACTIVE.equals(key)) {
+            isServiceActive = prefs.getBoolean(KEY_IS_ACTIVE, true);
+        }
+    };
 
     @Override
     public void onCreate() {
@@ -49,10 +75,23 @@ public class CallBlockerService extends CallScreeningService {
         // Inicializa as preferências
         preferences = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         isServiceActive = preferences.getBoolean(KEY_IS_ACTIVE, true);
+        preferences.registerOnSharedPreferenceChangeListener(configListener);
+        
+        // Compila as políticas de triagem (configurações e regras por linha)
+        AccountPolicies.INSTANCE.initialize(getApplicationContext());
         
         // Inicializa o VoipCallBlocker com o contexto
         VoipCallBlocker.INSTANCE.initialize(getApplicationContext());
         
+        // Inicializa o detector de números vizinhos (neighbor spoofing)
+        NeighborSpoofDetector.INSTANCE.initialize(getApplicationContext());
+        
+        // Inicializa o validador de números (planos carregados sob demanda)
+        NumberValidator.INSTANCE.initialize(getApplicationContext());
+        
+        // Carrega o modelo de pontuação de spam
+        SpamScorer.INSTANCE.initialize(getApplicationContext());
+        
         // Pré-aquece o cache com números conhecidos
         warmUpCache();
     }
@@ -71,99 +110,248 @@ public class CallBlockerService extends CallScreeningService {
     
     // Método para processar a chamada em segundo plano
     private void processCall(Call.Details callDetails) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
         Uri handle = callDetails.getHandle();
         final String scheme = (handle != null) ? handle.getScheme() : "unknown";
         final String number = (handle != null) ? handle.getSchemeSpecificPart() : "desconhecido";
+        final boolean identified = handle != null
+                && callDetails.getHandlePresentation() == TelecomManager.PRESENTATION_ALLOWED;
+        final int verification = getVerificationStatus(callDetails);
         
-        // Criar uma chave de cache única para esta chamada
-        final String cacheKey = scheme + ":" + number;
+        // Política da linha que recebe a chamada (uma consulta ao snapshot compilado)
+        final ScreeningPolicy policy = AccountPolicies.INSTANCE.select(callDetails.getAccountHandle());
         
-        // Verificar se já temos uma decisão em cache para este número
-        Boolean cachedResult = blockCache.get(cacheKey);
+        // Criar uma chave de cache única para esta chamada (o resultado depende da verificação)
+        final String cacheKey = verification + "|" + scheme + ":" + number;
+        
+        // Verificar se já temos uma decisão em cache para este número, no cache da linha
+        // (descartado se listas, feed, detector ou modelo mudaram desde então)
+        final long generation = AccountPolicies.INSTANCE.decisionGeneration();
+        String cachedResult = policy.cachedDecision(cacheKey, generation);
         if (cachedResult != null) {
             Log.d(TAG, "Usando resultado em cache para: " + number);
-            respondWithCachedResult(callDetails, cachedResult, number, scheme);
+            String blockReason = cachedResult.equals(ScreeningPolicy.NOT_BLOCKED) ? null : cachedResult;
+            ScreeningMetrics.record(ScreeningMetrics.TIER_CACHED, blockReason != null, SystemClock.elapsedRealtimeNanos() - startNanos);
+            SpamScorer.INSTANCE.recordCall(number, SpamFeatures.OUTCOME_UNLABELED, System.currentTimeMillis());
+            respond(callDetails, number, blockReason);
             return;
         }
         
         // Log com nível de prioridade mais baixo para economizar bateria
         if (Log.isLoggable(TAG, Log.DEBUG)) {
-            Log.d(TAG, "Chamando de: " + number + ", via: " + scheme);
+            Log.d(TAG, "Chamando de: " + number + ", via: " + scheme + ", verificação: " + verification);
+        }
+        
+        // Regras próprias da linha precedem as listas compartilhadas e a verificação da operadora
+        int accountVerdict = identified ? policy.rules.evaluate(number) : RulePipeline.VERDICT_NONE;
+        if (accountVerdict != RulePipeline.VERDICT_NONE) {
+            String blockReason = accountVerdict == RulePipeline.VERDICT_BLOCK ? REASON_USER_BLOCKED : null;
+            finishDecision(callDetails, policy, generation, cacheKey, number, blockReason, listOutcome(accountVerdict),
+                    verificationTier(verification), startNanos);
+            return;
+        }
+        
+        // Caminhos rápidos pela verificação STIR/SHAKEN da operadora
+        if (verification == Connection.VERIFICATION_STATUS_PASSED && identified) {
+            // Origem autenticada: permitir, exceto se o usuário bloqueou explicitamente
+            String blockReason = VoipCallBlocker.INSTANCE.isExplicitlyBlocked(number) ? REASON_USER_BLOCKED : null;
+            finishDecision(callDetails, policy, generation, cacheKey, number, blockReason,
+                    blockReason != null ? SpamFeatures.OUTCOME_SPAM : SpamFeatures.OUTCOME_UNLABELED,
+                    ScreeningMetrics.TIER_VERIFIED_PASSED, startNanos);
+            return;
         }
+        if (verification == Connection.VERIFICATION_STATUS_FAILED && policy.blockFailedVerification
+                && !(identified && VoipCallBlocker.INSTANCE.isExplicitlyAllowed(number))) {
+            // Número forjado segundo a operadora: bloquear sem avaliar as demais regras
+            finishDecision(callDetails, policy, generation, cacheKey, number, REASON_VERIFICATION_FAILED,
+                    SpamFeatures.OUTCOME_SPAM, ScreeningMetrics.TIER_VERIFIED_FAILED, startNanos);
+            return;
+        }
+        int tier = verification == VERIFICATION_UNAVAILABLE
+                ? ScreeningMetrics.TIER_VERIFICATION_UNAVAILABLE
+                : ScreeningMetrics.TIER_UNVERIFIED;
 
         boolean isVoip = "sip".equalsIgnoreCase(scheme) || "voip".equalsIgnoreCase(scheme);
         
         if (isVoip) {
             // Verificar se deve bloquear a chamada VoIP
-            boolean shouldBlock = VoipCallBlocker.INSTANCE.shouldBlockVoipCall(number, scheme);
+            boolean ruleBlocked = VoipCallBlocker.INSTANCE.shouldBlockVoipCall(number, scheme);
             
-            // Armazenar o resultado em cache para futuras chamadas
-            blockCache.put(cacheKey, shouldBlock);
-            
-            // Responder à chamada na thread principal
-            final boolean finalShouldBlock = shouldBlock;
-            mainHandler.post(() -> {
-                CallResponse.Builder responseBuilder = new CallResponse.Builder();
-                
-                if (finalShouldBlock) {
-                    if (Log.isLoggable(TAG, Log.DEBUG)) {
-                        Log.d(TAG, "Bloqueando chamada VoIP SUSPEITA: " + number);
-                    }
-                    responseBuilder.setDisallowCall(true);
-                    responseBuilder.setRejectCall(true);
-                    responseBuilder.setSkipCallLog(true);
-                    responseBuilder.setSkipNotification(true);
-                    
-                    // Envia notificação sobre a chamada bloqueada
-                    sendBlockedCallNotification(number, "Chamada VoIP suspeita");
-                } else {
-                    if (Log.isLoggable(TAG, Log.DEBUG)) {
-                        Log.d(TAG, "Chamada VoIP permitida: " + number);
-                    }
-                    responseBuilder.setDisallowCall(false);
-                }
-                
-                respondToCall(callDetails, responseBuilder.build());
-            });
+            // Sem regra aplicável: consultar o modelo de spam (a lista de permissões prevalece)
+            int listVerdict = VoipCallBlocker.INSTANCE.customListVerdict(number);
+            int outcome = listVerdict != RulePipeline.VERDICT_NONE ? listOutcome(listVerdict)
+                    : VoipCallBlocker.INSTANCE.isInSpamFeed(number) ? SpamFeatures.OUTCOME_SPAM
+                    : SpamFeatures.OUTCOME_UNLABELED;
+            String blockReason = null;
+            if (ruleBlocked) {
+                blockReason = voipBlockReason(number, listVerdict);
+            } else if (policy.blockSpamScore && listVerdict != RulePipeline.VERDICT_ALLOW
+                    && SpamScorer.INSTANCE.isSpam(number, true, verification, System.currentTimeMillis())) {
+                blockReason = REASON_SPAM_SCORE;
+            }
+            finishDecision(callDetails, policy, generation, cacheKey, number, blockReason, outcome, tier, startNanos);
         } else {
-            // Para chamadas não VoIP, permitir por padrão
-            mainHandler.post(() -> {
-                respondToCall(callDetails, new CallResponse.Builder().setDisallowCall(false).build());
-            });
+            // Chamadas telefônicas: lista do usuário (números, faixas e padrões) antes de qualquer heurística
+            int listVerdict = identified ? VoipCallBlocker.INSTANCE.customListVerdict(number) : RulePipeline.VERDICT_NONE;
+            if (listVerdict != RulePipeline.VERDICT_NONE) {
+                String blockReason = listVerdict == RulePipeline.VERDICT_BLOCK ? REASON_USER_BLOCKED : null;
+                finishDecision(callDetails, policy, generation, cacheKey, number, blockReason, listOutcome(listVerdict),
+                        tier, startNanos);
+                return;
+            }
+            
+            // Validação, neighbor spoofing e spam
+            String blockReason = screenPhoneCall(identified ? number : null, verification, policy);
+            finishDecision(callDetails, policy, generation, cacheKey, number, blockReason,
+                    REASON_SPAM_FEED.equals(blockReason) ? SpamFeatures.OUTCOME_SPAM : SpamFeatures.OUTCOME_UNLABELED,
+                    tier, startNanos);
+        }
+    }
+    
+    // Status STIR/SHAKEN informado pela operadora (API 30+)
+    private static int getVerificationStatus(Call.Details callDetails) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return VERIFICATION_UNAVAILABLE;
         }
+        return callDetails.getCallerNumberVerificationStatus();
     }
     
-    // Responder com resultado em cache
-    private void respondWithCachedResult(Call.Details callDetails, boolean shouldBlock, String number, String scheme) {
+    // Caminho nas métricas de uma decisão tomada antes das demais regras (regras da linha)
+    private static int verificationTier(int verification) {
+        if (verification == Connection.VERIFICATION_STATUS_PASSED) {
+            return ScreeningMetrics.TIER_VERIFIED_PASSED;
+        }
+        if (verification == Connection.VERIFICATION_STATUS_FAILED) {
+            return ScreeningMetrics.TIER_VERIFIED_FAILED;
+        }
+        return verification == VERIFICATION_UNAVAILABLE
+                ? ScreeningMetrics.TIER_VERIFICATION_UNAVAILABLE
+                : ScreeningMetrics.TIER_UNVERIFIED;
+    }
+    
+    // Desfecho de uma decisão da lista do usuário para a reputação de prefixo do modelo de spam
+    private static int listOutcome(int verdict) {
+        return verdict == RulePipeline.VERDICT_BLOCK ? SpamFeatures.OUTCOME_SPAM : SpamFeatures.OUTCOME_LEGITIMATE;
+    }
+    
+    /**
+     * Motivo de um bloqueio do pipeline VoIP. Os estágios gerais dividem um tier e são
+     * reordenados pelo tráfego, então o motivo segue uma prioridade fixa em vez do estágio que decidiu.
+     */
+    private static String voipBlockReason(String number, int listVerdict) {
+        if (listVerdict == RulePipeline.VERDICT_BLOCK) {
+            return REASON_USER_BLOCKED;
+        }
+        if (VoipCallBlocker.INSTANCE.isInSpamFeed(number)) {
+            return REASON_SPAM_FEED;
+        }
+        if (NeighborSpoofDetector.INSTANCE.isSuspect(number)) {
+            return REASON_NEIGHBOR_SPOOF;
+        }
+        return REASON_SPAM_PATTERN;
+    }
+    
+    /**
+     * Armazena a decisão, registra as métricas do caminho e responde na thread principal
+     * @param outcome Desfecho para a reputação de prefixo (SpamFeatures.OUTCOME_*): rotulado só
+     *                pela lista do usuário, pelo feed ou pela verificação, nunca pelo próprio modelo
+     */
+    private void finishDecision(Call.Details callDetails, ScreeningPolicy policy, long generation, String cacheKey,
+                                String number, String blockReason, int outcome, int tier, long startNanos) {
+        policy.cacheDecision(cacheKey, blockReason, generation);
+        SpamScorer.INSTANCE.recordCall(number, outcome, System.currentTimeMillis());
+        ScreeningMetrics.record(tier, blockReason != null, SystemClock.elapsedRealtimeNanos() - startNanos);
+        respond(callDetails, number, blockReason);
+    }
+    
+    // Responde na thread principal, notifica o bloqueio e publica o desfecho com o código do motivo
+    private void respond(Call.Details callDetails, String number, String blockReason) {
         mainHandler.post(() -> {
-            CallResponse.Builder responseBuilder = new CallResponse.Builder();
-            
-            if (shouldBlock) {
-                responseBuilder.setDisallowCall(true);
-                responseBuilder.setRejectCall(true);
-                responseBuilder.setSkipCallLog(true);
-                responseBuilder.setSkipNotification(true);
-                
-                // Envia notificação sobre a chamada bloqueada
-                sendBlockedCallNotification(number, "Chamada VoIP suspeita (cache)");
+            if (blockReason != null) {
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "Bloqueando chamada (" + blockReason + "): " + number);
+                }
+                respondToCall(callDetails, new CallResponse.Builder()
+                        .setDisallowCall(true)
+                        .setRejectCall(true)
+                        .setSkipCallLog(true)
+                        .setSkipNotification(true)
+                        .build());
+                sendBlockedCallNotification(number, describeReason(blockReason));
             } else {
-                responseBuilder.setDisallowCall(false);
+                respondToCall(callDetails, new CallResponse.Builder().setDisallowCall(false).build());
             }
-            
-            respondToCall(callDetails, responseBuilder.build());
+            ScreeningCommandReceiver.publishCallScreened(this, number, blockReason, blockReason != null);
         });
     }
     
+    /**
+     * Decide uma chamada telefônica (não VoIP) que a lista do usuário não decidiu
+     * @param number Número da chamada, ou null se não houver identificação
+     * @param verification Status STIR/SHAKEN da chamada
+     * @param policy Política da linha que recebe a chamada
+     * @return código do motivo do bloqueio, ou null para permitir
+     */
+    private String screenPhoneCall(String number, int verification, ScreeningPolicy policy) {
+        int validation = NumberValidator.INSTANCE.validate(number, NeighborSpoofDetector.INSTANCE.getCountryCode());
+        if (validation == NumberValidator.RESULT_ANONYMOUS) {
+            return policy.blockAnonymous ? REASON_ANONYMOUS : null;
+        }
+        if (validation == NumberValidator.RESULT_INVALID && policy.blockNoValidNumber) {
+            return REASON_NO_VALID_NUMBER;
+        }
+        if (NeighborSpoofDetector.INSTANCE.isSuspect(number)) {
+            return REASON_NEIGHBOR_SPOOF;
+        }
+        if (VoipCallBlocker.INSTANCE.isInSpamFeed(number)) {
+            return REASON_SPAM_FEED;
+        }
+        if (policy.blockSpamScore && SpamScorer.INSTANCE.isSpam(number, false, verification, System.currentTimeMillis())) {
+            return REASON_SPAM_SCORE;
+        }
+        return null;
+    }
+    
+    // Texto da notificação para cada código de motivo
+    private static String describeReason(String reason) {
+        switch (reason) {
+            case REASON_ANONYMOUS:
+                return "Chamada anônima";
+            case REASON_NO_VALID_NUMBER:
+                return "Número inválido";
+            case REASON_NEIGHBOR_SPOOF:
+                return "Possível número clonado (mesmo prefixo)";
+            case REASON_USER_BLOCKED:
+                return "Número na lista de bloqueio";
+            case REASON_VERIFICATION_FAILED:
+                return "Número forjado (verificação da operadora falhou)";
+            case REASON_SPAM_SCORE:
+                return "Provável spam (pontuação do modelo)";
+            case REASON_SPAM_FEED:
+                return "Número em lista de spam conhecida";
+            case REASON_SPAM_PATTERN:
+                return "Sequência de dígitos repetidos";
+            default:
+                return "Chamada suspeita";
+        }
+    }
+    
     // Método para enviar notificação sobre chamada bloqueada
     private void sendBlockedCallNotification(String number, String reason) {
         Context context = getApplicationContext();
         NotificationHelper.showBlockedCallNotification(context, number, reason);
     }
     
-    // Método para ativar/desativar o serviço
-    public void setServiceActive(boolean active) {
-        isServiceActive = active;
-        preferences.edit().putBoolean(KEY_IS_ACTIVE, active).apply();
+    /**
+     * Ativa/desativa a triagem. Uma instância em execução recebe a alteração
+     * pelo listener de preferências, sem precisar ser recriada.
+     * Deve ser chamado no processo de triagem (o app usa ScreeningCommandReceiver).
+     */
+    public static void setServiceActive(Context context, boolean active) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_IS_ACTIVE, active)
+                .apply();
     }
     
     // Método para pré-aquecer o cache com números conhecidos
@@ -182,6 +370,9 @@ public class CallBlockerService extends CallScreeningService {
     public void onDestroy() {
         super.onDestroy();
         Log.d(TAG, "CallBlockerService destruído");
-        blockCache.evictAll();
+        if (preferences != null) {
+            preferences.unregisterOnSharedPreferenceChangeListener(configListener);
+        }
+        AccountPolicies.INSTANCE.invalidateDecisions();
     }
 }
\ No newline at end of file
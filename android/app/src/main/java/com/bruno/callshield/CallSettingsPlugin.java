@@ -2,25 +2,37 @@ package com.bruno.callshield;
 
 import android.Manifest;
 import android.app.Activity;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.Settings;
+import android.util.Base64;
 import android.util.Log;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -40,10 +52,30 @@ public class CallSettingsPlugin extends Plugin {
     // Gerenciador de otimização de bateria
     private BatteryOptimizationManager batteryOptimizationManager;
 
+    // Recebe os eventos de chamadas triadas publicados pelo processo de triagem
+    private final BroadcastReceiver callScreenedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            JSObject event = new JSObject();
+            event.put("number", intent.getStringExtra(ScreeningCommandReceiver.EXTRA_NUMBER));
+            event.put("blocked", intent.getBooleanExtra(ScreeningCommandReceiver.EXTRA_BLOCKED, false));
+            event.put("reason", intent.getStringExtra(ScreeningCommandReceiver.EXTRA_REASON));
+            notifyListeners("callScreened", event);
+        }
+    };
+
     @Override
     public void load() {
         super.load();
         batteryOptimizationManager = new BatteryOptimizationManager(getContext());
+        ContextCompat.registerReceiver(getContext(), callScreenedReceiver,
+                new IntentFilter(ScreeningCommandReceiver.ACTION_CALL_SCREENED), ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        getContext().unregisterReceiver(callScreenedReceiver);
+        super.handleOnDestroy();
     }
 
     @PluginMethod
@@ -51,36 +83,119 @@ public class CallSettingsPlugin extends Plugin {
         boolean enable = call.getBoolean("enable", false);
         Log.d(TAG, "Chamada para enableCallBlocking: " + enable);
         
-        // Executar em segundo plano para não bloquear a thread principal
-        backgroundExecutor.execute(() -> {
-            try {
-                // Aqui você implementaria a lógica para ativar/desativar o bloqueio de chamadas
-                // Por exemplo, configurar o CallBlockerService
-                
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            // Sem triagem de chamadas nesta versão: nada a aplicar
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            call.resolve(ret);
+            return;
+        }
+        
+        // O processo de triagem grava a preferência; o serviço em execução a aplica na hora.
+        // A chamada só é resolvida quando o processo de triagem confirma
+        Bundle args = new Bundle();
+        args.putBoolean(ScreeningCommandReceiver.EXTRA_ACTIVE, enable);
+        ScreeningClient.send(getContext(), ScreeningCommandReceiver.ACTION_SET_ACTIVE, args, new ScreeningClient.Callback() {
+            @Override
+            public void onResult(Bundle result) {
                 // Se estamos ativando, verificar otimização de bateria
                 if (enable && !batteryOptimizationManager.isIgnoringBatteryOptimizations() && 
                     !batteryOptimizationManager.hasRequestedExemption()) {
-                    // Solicitar isenção de otimização de bateria
-                    mainHandler.post(() -> {
-                        Activity activity = getActivity();
-                        if (activity != null) {
-                            batteryOptimizationManager.requestBatteryOptimizationExemption(activity);
+                    Activity activity = getActivity();
+                    if (activity != null) {
+                        batteryOptimizationManager.requestBatteryOptimizationExemption(activity);
+                    }
+                }
+                
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                call.resolve(ret);
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "Erro ao ativar/desativar a triagem: " + message);
+                call.reject(message);
+            }
+        });
+    }
+
+    @PluginMethod
+    public void updateBlockSettings(PluginCall call) {
+        JSObject settings = call.getObject("settings");
+        Log.d(TAG, "Chamada para updateBlockSettings: " + settings.toString());
+        
+        // Apenas as opções usadas pelo serviço de triagem nativo
+        Bundle args = new Bundle();
+        for (String key : new String[] { CallBlockerService.KEY_BLOCK_ANONYMOUS, CallBlockerService.KEY_BLOCK_NO_VALID_NUMBER }) {
+            args.putBoolean(key, settings.optBoolean(key, false));
+        }
+        // Opcionais: bloqueio de chamadas reprovadas na verificação STIR/SHAKEN (ativo por padrão)
+        // e bloqueio pela pontuação do modelo de spam (inativo por padrão)
+        for (String key : new String[] { CallBlockerService.KEY_BLOCK_FAILED_VERIFICATION, CallBlockerService.KEY_BLOCK_SPAM_SCORE }) {
+            if (settings.has(key)) {
+                args.putBoolean(key, settings.optBoolean(key));
+            }
+        }
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_UPDATE_SETTINGS, args, true);
+    }
+
+    @PluginMethod
+    public void updateCustomList(PluginCall call) {
+        JSArray list = call.getArray("list");
+        Log.d(TAG, "Chamada para updateCustomList: " + (list != null ? list.length() : 0) + " entradas");
+        
+        // Executar em segundo plano: a lista vai ao processo de triagem como transferência em lote
+        backgroundExecutor.execute(() -> {
+            String handle = null;
+            try {
+                handle = BulkTransfer.begin(getContext());
+                try (BulkTransfer.Writer writer = new BulkTransfer.Writer(BulkTransfer.file(getContext(), handle),
+                        BulkTransfer.KIND_CUSTOM_LIST)) {
+                    for (int i = 0; list != null && i < list.length(); i++) {
+                        JSONObject entry = list.optJSONObject(i);
+                        int type = entry != null ? BulkTransfer.typeOf(entry.optString("type")) : -1;
+                        if (type >= 0) {
+                            writer.write(type, entry.optBoolean("isBlocked", true), entry.optString("value"));
                         }
-                    });
+                    }
                 }
+                applyCustomList(call, handle);
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao atualizar lista personalizada", e);
+                if (handle != null) {
+                    BulkTransfer.release(getContext(), handle);
+                }
+                mainHandler.post(() -> {
+                    call.reject(e.getMessage(), e);
+                });
+            }
+        });
+    }
+
+    // O processo de triagem lê a transferência, aplica a lista e descarta o arquivo
+    private void applyCustomList(PluginCall call, String handle) {
+        Bundle args = new Bundle();
+        args.putString(ScreeningCommandReceiver.EXTRA_HANDLE, handle);
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_APPLY_CUSTOM_LIST, args, true);
+    }
+
+    @PluginMethod
+    public void beginBulkTransfer(PluginCall call) {
+        // Executar em segundo plano
+        backgroundExecutor.execute(() -> {
+            try {
+                String handle = BulkTransfer.begin(getContext());
                 
                 // Responder na thread principal
                 mainHandler.post(() -> {
                     JSObject ret = new JSObject();
-                    ret.put("success", true);
+                    ret.put("handle", handle);
                     call.resolve(ret);
                 });
             } catch (Exception e) {
-                Log.e(TAG, "Erro ao ativar/desativar bloqueio de chamadas", e);
+                Log.e(TAG, "Erro ao iniciar transferência em lote", e);
                 mainHandler.post(() -> {
-                    JSObject ret = new JSObject();
-                    ret.put("success", false);
-                    ret.put("error", e.getMessage());
                     call.reject(e.getMessage(), e);
                 });
             }
@@ -88,23 +203,28 @@ public class CallSettingsPlugin extends Plugin {
     }
 
     @PluginMethod
-    public void updateBlockSettings(PluginCall call) {
-        JSObject settings = call.getObject("settings");
-        Log.d(TAG, "Chamada para updateBlockSettings: " + settings.toString());
+    public void appendBulkChunk(PluginCall call) {
+        String handle = call.getString("handle");
+        String data = call.getString("data");
+        Double offset = call.getDouble("offset");
+        if (data == null || offset == null) {
+            call.reject("Bloco não informado");
+            return;
+        }
         
-        // Executar em segundo plano
+        // Executar em segundo plano (os blocos são gravados na ordem em que chegam)
         backgroundExecutor.execute(() -> {
             try {
-                // Aqui você implementaria a lógica para atualizar as configurações
+                long size = BulkTransfer.append(getContext(), handle, offset.longValue(), Base64.decode(data, Base64.DEFAULT));
                 
                 // Responder na thread principal
                 mainHandler.post(() -> {
                     JSObject ret = new JSObject();
-                    ret.put("success", true);
+                    ret.put("size", size);
                     call.resolve(ret);
                 });
             } catch (Exception e) {
-                Log.e(TAG, "Erro ao atualizar configurações", e);
+                Log.e(TAG, "Erro ao receber bloco da transferência", e);
                 mainHandler.post(() -> {
                     call.reject(e.getMessage(), e);
                 });
@@ -113,23 +233,38 @@ public class CallSettingsPlugin extends Plugin {
     }
 
     @PluginMethod
-    public void updateCustomList(PluginCall call) {
-        JSObject listObj = call.getObject("list");
-        Log.d(TAG, "Chamada para updateCustomList: " + listObj.toString());
-        
+    public void commitCustomList(PluginCall call) {
+        String handle = call.getString("handle");
+        Log.d(TAG, "Chamada para commitCustomList: " + handle);
+        applyCustomList(call, handle);
+    }
+
+    @PluginMethod
+    public void exportCustomList(PluginCall call) {
         // Executar em segundo plano
         backgroundExecutor.execute(() -> {
             try {
-                // Aqui você implementaria a lógica para atualizar a lista personalizada
-                
-                // Responder na thread principal
-                mainHandler.post(() -> {
-                    JSObject ret = new JSObject();
-                    ret.put("success", true);
-                    call.resolve(ret);
+                // O processo de triagem grava a lista no arquivo; o app o lê e chama releaseBulkTransfer
+                String handle = BulkTransfer.begin(getContext());
+                Bundle args = new Bundle();
+                args.putString(ScreeningCommandReceiver.EXTRA_HANDLE, handle);
+                ScreeningClient.send(getContext(), ScreeningCommandReceiver.ACTION_EXPORT_CUSTOM_LIST, args, new ScreeningClient.Callback() {
+                    @Override
+                    public void onResult(Bundle result) {
+                        JSObject ret = toJSObject(result);
+                        ret.put("handle", handle);
+                        call.resolve(ret);
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        Log.e(TAG, "Erro ao exportar lista personalizada: " + message);
+                        BulkTransfer.release(getContext(), handle);
+                        call.reject(message);
+                    }
                 });
             } catch (Exception e) {
-                Log.e(TAG, "Erro ao atualizar lista personalizada", e);
+                Log.e(TAG, "Erro ao exportar lista personalizada", e);
                 mainHandler.post(() -> {
                     call.reject(e.getMessage(), e);
                 });
@@ -137,6 +272,45 @@ public class CallSettingsPlugin extends Plugin {
         });
     }
 
+    @PluginMethod
+    public void releaseBulkTransfer(PluginCall call) {
+        String handle = call.getString("handle");
+        backgroundExecutor.execute(() -> {
+            BulkTransfer.release(getContext(), handle);
+            mainHandler.post(call::resolve);
+        });
+    }
+
+    @PluginMethod
+    public void configureNeighborSpoofing(PluginCall call) {
+        JSArray ownNumbersArray = call.getArray("ownNumbers");
+        
+        Bundle args = new Bundle();
+        args.putBoolean(ScreeningCommandReceiver.EXTRA_ENABLE, call.getBoolean("enable", false));
+        args.putInt(ScreeningCommandReceiver.EXTRA_MIN_SHARED_DIGITS, call.getInt("minSharedDigits", 5));
+        if (ownNumbersArray != null) {
+            String[] ownNumbers = new String[ownNumbersArray.length()];
+            for (int i = 0; i < ownNumbers.length; i++) {
+                ownNumbers[i] = ownNumbersArray.optString(i);
+            }
+            args.putStringArray(ScreeningCommandReceiver.EXTRA_OWN_NUMBERS, ownNumbers);
+        }
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_CONFIGURE_NEIGHBOR_SPOOFING, args, true);
+    }
+
+    @PluginMethod
+    public void configureSync(PluginCall call) {
+        Bundle args = new Bundle();
+        args.putString(ScreeningCommandReceiver.EXTRA_URL, call.getString("url"));
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_CONFIGURE_SYNC, args, true);
+    }
+
+    @PluginMethod
+    public void syncNow(PluginCall call) {
+        // Só antecipa a sincronização: ela roda numa janela de manutenção do processo de triagem
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_SYNC_NOW, null, true);
+    }
+
     @PluginMethod
     public void checkPermissions(PluginCall call) {
         // Executar em segundo plano
@@ -160,7 +334,8 @@ public class CallSettingsPlugin extends Plugin {
         
         String[] permissions = {
             Manifest.permission.READ_PHONE_STATE,
-            Manifest.permission.READ_CALL_LOG
+            Manifest.permission.READ_CALL_LOG,
+            Manifest.permission.READ_CONTACTS
         };
         
         pluginRequestPermissions(permissions, REQUEST_PHONE_PERMISSIONS);
@@ -243,6 +418,139 @@ public class CallSettingsPlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void getMaintenanceStats(PluginCall call) {
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_GET_MAINTENANCE_STATS, null, false);
+    }
+
+    @PluginMethod
+    public void getScreeningMetrics(PluginCall call) {
+        // Os contadores vivem no processo de triagem
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_GET_SCREENING_METRICS, null, false);
+    }
+
+    @PluginMethod
+    public void installSpamModel(PluginCall call) {
+        String data = call.getString("data");
+        if (data == null) {
+            call.reject("Modelo não informado");
+            return;
+        }
+        
+        // O modelo tem poucos bytes e cabe no próprio comando
+        Bundle args = new Bundle();
+        try {
+            args.putByteArray(ScreeningCommandReceiver.EXTRA_DATA, Base64.decode(data, Base64.DEFAULT));
+        } catch (IllegalArgumentException e) {
+            call.reject("Modelo em base64 inválido");
+            return;
+        }
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_INSTALL_SPAM_MODEL, args, true);
+    }
+
+    @PluginMethod
+    public void getRuleOrder(PluginCall call) {
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_GET_RULE_ORDER, null, false);
+    }
+
+    @PluginMethod
+    public void getPhoneAccounts(PluginCall call) {
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_GET_PHONE_ACCOUNTS, null, false);
+    }
+
+    @PluginMethod
+    public void setAccountPolicy(PluginCall call) {
+        String accountId = call.getString("accountId");
+        if (accountId == null) {
+            call.reject("Linha não informada");
+            return;
+        }
+        JSObject settings = call.getObject("settings", new JSObject());
+        JSArray entries = call.getArray("entries", new JSArray());
+
+        // Apenas as configurações informadas sobrescrevem as globais nesta linha
+        Bundle settingsArgs = new Bundle();
+        for (String key : AccountPolicies.SETTING_KEYS) {
+            if (settings.has(key)) {
+                settingsArgs.putBoolean(key, settings.optBoolean(key));
+            }
+        }
+        int[] types = new int[entries.length()];
+        boolean[] blocked = new boolean[entries.length()];
+        String[] values = new String[entries.length()];
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject entry = entries.optJSONObject(i);
+            types[i] = entry != null ? BulkTransfer.typeOf(entry.optString("type")) : -1;
+            blocked[i] = entry == null || entry.optBoolean("isBlocked", true);
+            values[i] = entry != null ? entry.optString("value") : "";
+        }
+
+        Bundle args = new Bundle();
+        args.putString(ScreeningCommandReceiver.EXTRA_ACCOUNT, accountId);
+        args.putBundle(ScreeningCommandReceiver.EXTRA_SETTINGS, settingsArgs);
+        args.putIntArray(ScreeningCommandReceiver.EXTRA_ENTRY_TYPES, types);
+        args.putBooleanArray(ScreeningCommandReceiver.EXTRA_ENTRY_BLOCKED, blocked);
+        args.putStringArray(ScreeningCommandReceiver.EXTRA_ENTRY_VALUES, values);
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_SET_ACCOUNT_POLICY, args, true);
+    }
+
+    @PluginMethod
+    public void removeAccountPolicy(PluginCall call) {
+        Bundle args = new Bundle();
+        args.putString(ScreeningCommandReceiver.EXTRA_ACCOUNT, call.getString("accountId"));
+        sendScreeningCommand(call, ScreeningCommandReceiver.ACTION_REMOVE_ACCOUNT_POLICY, args, true);
+    }
+
+    // Envia um comando ao processo de triagem e responde à chamada com o resultado
+    private void sendScreeningCommand(PluginCall call, String action, Bundle args, boolean reportSuccess) {
+        ScreeningClient.send(getContext(), action, args, new ScreeningClient.Callback() {
+            @Override
+            public void onResult(Bundle result) {
+                JSObject ret = toJSObject(result);
+                if (reportSuccess) {
+                    ret.put("success", true);
+                }
+                call.resolve(ret);
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "Erro no processo de triagem (" + action + "): " + message);
+                call.reject(message);
+            }
+        });
+    }
+
+    // Chaves dos resultados de ScreeningCommandReceiver por tipo; as demais são contadores (putLong)
+    private static final Set<String> INT_RESULT_KEYS = new HashSet<>(Arrays.asList("count", "rejected"));
+    private static final Set<String> STRING_RESULT_KEYS = Collections.singleton("path");
+    private static final Set<String> STRING_LIST_RESULT_KEYS =
+            new HashSet<>(Arrays.asList("order", "ids", "labels", "addresses", "configured"));
+
+    // Resultado de um comando (números, textos e listas de textos) como objeto JS
+    private static JSObject toJSObject(Bundle bundle) {
+        JSObject ret = new JSObject();
+        for (String key : bundle.keySet()) {
+            if (INT_RESULT_KEYS.contains(key)) {
+                ret.put(key, bundle.getInt(key));
+            } else if (STRING_RESULT_KEYS.contains(key)) {
+                ret.put(key, bundle.getString(key));
+            } else if (STRING_LIST_RESULT_KEYS.contains(key)) {
+                JSArray array = new JSArray();
+                List<String> items = bundle.getStringArrayList(key);
+                if (items != null) {
+                    for (String item : items) {
+                        array.put(item);
+                    }
+                }
+                ret.put(key, array);
+            } else {
+                ret.put(key, bundle.getLong(key));
+            }
+        }
+        return ret;
+    }
+
     @Override
     protected void handleRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.handleRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -0,0 +1,68 @@
+package com.bruno.callshield;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Acumula as entradas da lista personalizada (lidas de uma transferência em lote)
+ * nas estruturas nativas e as aplica no VoipCallBlocker de uma só vez.
+ */
+final class CustomListBuilder implements BulkTransfer.RecordVisitor {
+    private static final String TAG = "CustomListBuilder";
+
+    private final Set<String> blocked = new HashSet<>();
+    private final Set<String> allowed = new HashSet<>();
+    private final RangeIndex.Builder blockedRanges = new RangeIndex.Builder();
+    private final RangeIndex.Builder allowedRanges = new RangeIndex.Builder();
+    private final List<DigitPattern> blockedPatterns = new ArrayList<>();
+    private final List<DigitPattern> allowedPatterns = new ArrayList<>();
+    private int rejected;
+
+    @Override
+    public void visit(int type, boolean isBlocked, String value) {
+        if (type == BulkTransfer.TYPE_PHONE) {
+            (isBlocked ? blocked : allowed).add(VoipCallBlocker.normalizeNumber(value));
+        } else if (type == BulkTransfer.TYPE_RANGE) {
+            long[] range = RangeIndex.parseRange(value);
+            if (range == null) {
+                rejected++;
+            } else {
+                (isBlocked ? blockedRanges : allowedRanges).add(range[0], range[1]);
+            }
+        } else if (type == BulkTransfer.TYPE_PATTERN) {
+            // Fora do dialeto linear vale como trecho literal (como em TS); o resto é rejeitado aqui, nunca na triagem
+            try {
+                (isBlocked ? blockedPatterns : allowedPatterns).add(DigitPattern.compileEntry(value));
+            } catch (DigitPattern.SyntaxException e) {
+                Log.w(TAG, "Padrão rejeitado: " + value + " (" + e.getMessage() + ")");
+                rejected++;
+            }
+        }
+    }
+
+    // Entradas recusadas (faixas ou padrões inválidos)
+    int getRejected() {
+        return rejected;
+    }
+
+    // Regras imutáveis de uma linha (AccountPolicies), em vez da lista compartilhada
+    ScreeningPolicy.Rules toRules() {
+        if (blocked.isEmpty() && allowed.isEmpty() && blockedRanges.isEmpty() && allowedRanges.isEmpty()
+                && blockedPatterns.isEmpty() && allowedPatterns.isEmpty()) {
+            return ScreeningPolicy.Rules.EMPTY;
+        }
+        return new ScreeningPolicy.Rules(blocked, allowed, blockedRanges.build(), allowedRanges.build(),
+                blockedPatterns.toArray(new DigitPattern[0]), allowedPatterns.toArray(new DigitPattern[0]));
+    }
+
+    void apply(Context context) {
+        VoipCallBlocker.INSTANCE.initialize(context);
+        VoipCallBlocker.INSTANCE.replaceCustomList(blocked, allowed, blockedRanges.build(), allowedRanges.build(),
+                blockedPatterns, allowedPatterns);
+    }
+}
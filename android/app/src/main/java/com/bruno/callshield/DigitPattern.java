@@ -0,0 +1,470 @@
+package com.bruno.callshield;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Padrão de número em tempo linear, seguro contra backtracking catastrófico (ReDoS).
+ *
+ * Dialeto restrito de expressões regulares sobre o alfabeto de números
+ * (dígitos, '+', '.', '*', '#'):
+ *   ^ e $ nas pontas, '|' no nível superior, '.', \d, classes como [0-9] e [^0],
+ *   escapes \+ \. \* \# e quantificadores ? * + {n} {n,} {n,m} aplicados a um único átomo.
+ * Grupos, retroreferências e lookarounds são rejeitados na compilação.
+ *
+ * Cada alternativa vira um autômato de posições com no máximo 63 estados, simulado
+ * com um long como conjunto de estados: custo O(tamanho da entrada × estados), sem
+ * retrocesso, e ainda limitado por um orçamento de passos por avaliação.
+ */
+public final class DigitPattern {
+    // Resultados de avaliação
+    public static final int NO_MATCH = 0;
+    public static final int MATCH = 1;
+    public static final int BUDGET_EXCEEDED = 2;
+
+    // Orçamento padrão de transições por avaliação
+    public static final int DEFAULT_STEP_BUDGET = 4096;
+
+    private static final int MAX_POSITIONS = 63;
+    private static final int MAX_REPEAT = 32;
+    private static final int MAX_SOURCE_LENGTH = 256;
+
+    // Alfabeto: 0-9, '+', '.', '*', '#' e "outro"
+    private static final int SYMBOL_COUNT = 15;
+    private static final int DIGITS = 0x3FF;
+    private static final int ANY = (1 << SYMBOL_COUNT) - 1;
+
+    /**
+     * Erro de sintaxe ou construção não suportada
+     */
+    public static final class SyntaxException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public SyntaxException(String message) {
+            super(message);
+        }
+    }
+
+    // Autômato de uma alternativa
+    private static final class Program {
+        final int[] masks;      // Símbolos aceitos por posição
+        final boolean[] stars;  // Posição repetível (permanece no mesmo estado)
+        final long[] closures;  // Estados alcançáveis a partir de cada posição pulando as opcionais
+        final long acceptBit;
+        final boolean anchoredStart;
+        final boolean anchoredEnd;
+
+        Program(int[] masks, boolean[] stars, boolean[] optional, boolean anchoredStart, boolean anchoredEnd) {
+            int k = masks.length;
+            this.masks = masks;
+            this.stars = stars;
+            this.acceptBit = 1L << k;
+            this.anchoredStart = anchoredStart;
+            this.anchoredEnd = anchoredEnd;
+            this.closures = new long[k + 1];
+            closures[k] = acceptBit;
+            for (int p = k - 1; p >= 0; p--) {
+                closures[p] = (1L << p) | (optional[p] ? closures[p + 1] : 0);
+            }
+        }
+    }
+
+    private final String source;
+    private final Program[] programs;
+
+    private DigitPattern(String source, Program[] programs) {
+        this.source = source;
+        this.programs = programs;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Compila um padrão
+     * @throws SyntaxException se o padrão usar construções fora do dialeto ou for grande demais
+     */
+    public static DigitPattern compile(String source) throws SyntaxException {
+        if (source == null || source.isEmpty()) {
+            throw new SyntaxException("Padrão vazio");
+        }
+        if (source.length() > MAX_SOURCE_LENGTH) {
+            throw new SyntaxException("Padrão longo demais");
+        }
+
+        List<Program> programs = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= source.length(); i++) {
+            if (i == source.length() || (source.charAt(i) == '|' && !isEscaped(source, i) && !inClass(source, i))) {
+                programs.add(compileAlternative(source, start, i));
+                start = i + 1;
+            }
+        }
+        return new DigitPattern(source, programs.toArray(new Program[0]));
+    }
+
+    /**
+     * Compila uma entrada "pattern" da lista personalizada. Entradas antigas fora do dialeto
+     * (ex.: "+5511") valem como trecho literal, como no patternEntryTest da triagem em TS.
+     * @throws SyntaxException se o padrão não compilar nem servir como literal
+     */
+    public static DigitPattern compileEntry(String source) throws SyntaxException {
+        try {
+            return compile(source);
+        } catch (SyntaxException e) {
+            try {
+                return literal(source);
+            } catch (SyntaxException literalError) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Padrão que encontra o texto, literalmente, em qualquer ponto da entrada
+     * @throws SyntaxException se o texto tiver caracteres fora do alfabeto de números ou for longo demais
+     */
+    public static DigitPattern literal(String text) throws SyntaxException {
+        if (text == null || text.isEmpty()) {
+            throw new SyntaxException("Padrão vazio");
+        }
+        if (text.length() > MAX_POSITIONS) {
+            throw new SyntaxException("Padrão longo demais");
+        }
+        int[] masks = new int[text.length()];
+        for (int i = 0; i < masks.length; i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && c != '+' && c != '.' && c != '*' && c != '#') {
+                throw new SyntaxException("Caractere não suportado: '" + c + "'");
+            }
+            masks[i] = 1 << symbol(c);
+        }
+        Program program = new Program(masks, new boolean[masks.length], new boolean[masks.length], false, false);
+        return new DigitPattern(text, new Program[] { program });
+    }
+
+    private static boolean isEscaped(String source, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && source.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return (backslashes & 1) == 1;
+    }
+
+    // Se o índice está dentro de uma classe [...]
+    private static boolean inClass(String source, int index) {
+        boolean inside = false;
+        for (int i = 0; i < index; i++) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                inside = true;
+            } else if (c == ']') {
+                inside = false;
+            }
+        }
+        return inside;
+    }
+
+    private static Program compileAlternative(String source, int from, int to) throws SyntaxException {
+        boolean anchoredStart = false;
+        boolean anchoredEnd = false;
+        if (from < to && source.charAt(from) == '^') {
+            anchoredStart = true;
+            from++;
+        }
+        if (to > from && source.charAt(to - 1) == '$' && !isEscaped(source, to - 1)) {
+            anchoredEnd = true;
+            to--;
+        }
+
+        List<Integer> masks = new ArrayList<>();
+        List<Boolean> stars = new ArrayList<>();
+        List<Boolean> optional = new ArrayList<>();
+
+        int i = from;
+        while (i < to) {
+            // Átomo
+            int mask;
+            char c = source.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= to) {
+                    throw new SyntaxException("Escape incompleto no fim do padrão");
+                }
+                char escaped = source.charAt(i + 1);
+                if (escaped == 'd') {
+                    mask = DIGITS;
+                } else if (escaped == '+' || escaped == '.' || escaped == '*' || escaped == '#') {
+                    mask = 1 << symbol(escaped);
+                } else {
+                    throw new SyntaxException("Escape não suportado: \\" + escaped);
+                }
+                i += 2;
+            } else if (c == '[') {
+                int end = source.indexOf(']', i + 1);
+                if (end < 0 || end >= to) {
+                    throw new SyntaxException("Classe sem ']'");
+                }
+                mask = parseClass(source, i + 1, end);
+                i = end + 1;
+            } else if (c == '.') {
+                mask = ANY;
+                i++;
+            } else if ((c >= '0' && c <= '9') || c == '#') {
+                mask = 1 << symbol(c);
+                i++;
+            } else if (c == '(' || c == ')') {
+                throw new SyntaxException("Grupos não são suportados");
+            } else if (c == '^' || c == '$') {
+                throw new SyntaxException("Âncora '" + c + "' só é permitida nas pontas");
+            } else if (c == '?' || c == '*' || c == '+' || c == '{') {
+                throw new SyntaxException("Quantificador sem átomo na posição " + (i - from));
+            } else {
+                throw new SyntaxException("Caractere não suportado: '" + c + "'");
+            }
+
+            // Quantificador
+            int min = 1;
+            int max = 1; // -1 = ilimitado
+            if (i < to) {
+                char q = source.charAt(i);
+                if (q == '?') {
+                    min = 0;
+                    i++;
+                } else if (q == '*') {
+                    min = 0;
+                    max = -1;
+                    i++;
+                } else if (q == '+') {
+                    max = -1;
+                    i++;
+                } else if (q == '{') {
+                    int end = source.indexOf('}', i);
+                    if (end < 0 || end >= to) {
+                        throw new SyntaxException("Quantificador sem '}'");
+                    }
+                    String quantifier = source.substring(i, end + 1);
+                    String[] bounds = source.substring(i + 1, end).split(",", -1);
+                    min = parseBound(bounds[0], quantifier);
+                    max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : parseBound(bounds[1], quantifier);
+                    if (bounds.length > 2 || (max != -1 && max < min) || min > MAX_REPEAT || max > MAX_REPEAT) {
+                        throw new SyntaxException("Quantificador inválido: " + quantifier);
+                    }
+                    i = end + 1;
+                }
+                if (i < to && (source.charAt(i) == '?' || source.charAt(i) == '*'
+                        || source.charAt(i) == '+' || source.charAt(i) == '{')) {
+                    throw new SyntaxException("Quantificadores encadeados não são suportados");
+                }
+            }
+
+            // Expansão: min posições obrigatórias, depois opcionais ou uma repetível
+            for (int r = 0; r < min; r++) {
+                masks.add(mask);
+                stars.add(false);
+                optional.add(false);
+            }
+            if (max == -1) {
+                masks.add(mask);
+                stars.add(true);
+                optional.add(true);
+            } else {
+                for (int r = min; r < max; r++) {
+                    masks.add(mask);
+                    stars.add(false);
+                    optional.add(true);
+                }
+            }
+            if (masks.size() > MAX_POSITIONS) {
+                throw new SyntaxException("Padrão complexo demais (máximo de " + MAX_POSITIONS + " posições)");
+            }
+        }
+
+        int k = masks.size();
+        int[] maskArray = new int[k];
+        boolean[] starArray = new boolean[k];
+        boolean[] optionalArray = new boolean[k];
+        for (int p = 0; p < k; p++) {
+            maskArray[p] = masks.get(p);
+            starArray[p] = stars.get(p);
+            optionalArray[p] = optional.get(p);
+        }
+        return new Program(maskArray, starArray, optionalArray, anchoredStart, anchoredEnd);
+    }
+
+    // Limite de um quantificador: só dígitos, como no dialeto em TS (parseInt aceitaria "+3").
+    // Valores acima de MAX_REPEAT saturam em MAX_REPEAT + 1.
+    private static int parseBound(String text, String quantifier) throws SyntaxException {
+        if (text.isEmpty()) {
+            throw new SyntaxException("Quantificador inválido: " + quantifier);
+        }
+        int value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new SyntaxException("Quantificador inválido: " + quantifier);
+            }
+            value = Math.min(value * 10 + (c - '0'), MAX_REPEAT + 1);
+        }
+        return value;
+    }
+
+    // Conteúdo de uma classe [...]: dígitos, intervalos de dígitos e os símbolos + . * #
+    private static int parseClass(String source, int from, int to) throws SyntaxException {
+        boolean negated = from < to && source.charAt(from) == '^';
+        if (negated) {
+            from++;
+        }
+        if (from >= to) {
+            throw new SyntaxException("Classe vazia");
+        }
+
+        int mask = 0;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            if (c == '\\' && i + 1 < to) {
+                char escaped = source.charAt(++i);
+                if (escaped == 'd') {
+                    mask |= DIGITS;
+                    continue;
+                }
+                c = escaped;
+            }
+            if (i + 2 < to && source.charAt(i + 1) == '-' && c >= '0' && c <= '9') {
+                char end = source.charAt(i + 2);
+                if (end < c || end > '9') {
+                    throw new SyntaxException("Intervalo inválido na classe: " + c + "-" + end);
+                }
+                for (char d = c; d <= end; d++) {
+                    mask |= 1 << symbol(d);
+                }
+                i += 2;
+            } else if ((c >= '0' && c <= '9') || c == '+' || c == '.' || c == '*' || c == '#') {
+                mask |= 1 << symbol(c);
+            } else {
+                throw new SyntaxException("Caractere não suportado na classe: '" + c + "'");
+            }
+        }
+        return negated ? ANY & ~mask : mask;
+    }
+
+    private static int symbol(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        switch (c) {
+            case '+':
+                return 10;
+            case '.':
+                return 11;
+            case '*':
+                return 12;
+            case '#':
+                return 13;
+            default:
+                return 14;
+        }
+    }
+
+    // Verifica se o padrão ocorre na entrada, com o orçamento padrão (estourar conta como não correspondência)
+    public boolean matches(CharSequence input) {
+        return match(input, DEFAULT_STEP_BUDGET) == MATCH;
+    }
+
+    /**
+     * Avalia o padrão
+     * @param input Texto a avaliar (normalmente o número normalizado)
+     * @param stepBudget Máximo de transições somando todas as alternativas
+     * @return MATCH, NO_MATCH ou BUDGET_EXCEEDED
+     */
+    public int match(CharSequence input, int stepBudget) {
+        if (input == null) {
+            return NO_MATCH;
+        }
+        int remaining = stepBudget;
+        for (Program program : programs) {
+            remaining = run(program, input, remaining);
+            if (remaining == RUN_MATCHED) {
+                return MATCH;
+            }
+            if (remaining == RUN_EXHAUSTED) {
+                return BUDGET_EXCEEDED;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    private static final int RUN_MATCHED = -1;
+    private static final int RUN_EXHAUSTED = -2;
+
+    // Simulação do autômato: passos restantes se não encontrou, RUN_MATCHED ou RUN_EXHAUSTED
+    private static int run(Program program, CharSequence input, int budget) {
+        long state = program.closures[0];
+        if (!program.anchoredEnd && (state & program.acceptBit) != 0) {
+            return RUN_MATCHED;
+        }
+
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            int bit = 1 << symbol(input.charAt(i));
+            long next = 0;
+            long active = state & ~program.acceptBit;
+            while (active != 0) {
+                if (--budget < 0) {
+                    return RUN_EXHAUSTED;
+                }
+                int p = Long.numberOfTrailingZeros(active);
+                active &= active - 1;
+                if ((program.masks[p] & bit) != 0) {
+                    next |= program.closures[program.stars[p] ? p : p + 1];
+                }
+            }
+            if (!program.anchoredStart) {
+                next |= program.closures[0];
+            }
+            state = next;
+            if (!program.anchoredEnd && (state & program.acceptBit) != 0) {
+                return RUN_MATCHED;
+            }
+            if (state == 0) {
+                break;
+            }
+        }
+
+        return (program.anchoredEnd && (state & program.acceptBit) != 0) ? RUN_MATCHED : budget;
+    }
+
+    /**
+     * Varredura de repetição no início do número: sinal '+' opcional, o primeiro caractere
+     * repetido ao menos minRun vezes e, depois da sequência, apenas dígitos.
+     * Equivale a ^\+?(.)\1{minRun-1,}\d*$ sem retroreferência.
+     */
+    public static boolean hasLeadingRun(CharSequence input, int minRun) {
+        if (input == null) {
+            return false;
+        }
+        int length = input.length();
+        int i = (length > 0 && input.charAt(0) == '+') ? 1 : 0;
+        if (i >= length) {
+            return false;
+        }
+        char first = input.charAt(i);
+        int run = 0;
+        while (i < length && input.charAt(i) == first) {
+            run++;
+            i++;
+        }
+        if (run < minRun) {
+            return false;
+        }
+        for (; i < length; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
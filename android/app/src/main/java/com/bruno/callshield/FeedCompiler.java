@@ -0,0 +1,523 @@
+package com.bruno.callshield;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Compilação offline de feeds de spam na JVM (não faz parte do APK em tempo de execução).
+ *
+ * Uso: java FeedCompiler -o &lt;diretório&gt; [--plans &lt;diretório&gt;] [--threads N | --sequential] &lt;feed&gt;...
+ *
+ * Cada feed (CSV ou TXT) tem uma entrada por linha na primeira coluna; as demais colunas
+ * (rótulo, origem etc.) são ignoradas, assim como linhas vazias, comentários '#' e cabeçalhos.
+ * O tipo é deduzido do valor:
+ *   +55 11 4000-1234          número
+ *   +55 11 4000-XXXX, a..b    faixa (mesma sintaxe das faixas da lista personalizada)
+ *   +55 11 4000*              prefixo (todas as faixas de comprimento até 15 dígitos)
+ *   203.0.113.0/24, 1.2.3.4   bloco IPv4 / endereço do host SIP
+ *   spam.example, sip:x@host  domínio SIP (inclui os subdomínios)
+ *
+ * Gera no diretório de saída os arquivos lidos por FeedIndex (copiados para assets/feeds),
+ * além de report.txt com as entradas rejeitadas, tamanhos e custo de busca. A análise e a
+ * ordenação de cada bloco do arquivo rodam em paralelo (fork-join), e os blocos ordenados
+ * são intercalados na volta da recursão. Cada feed é lido inteiro na memória (até 2 GB).
+ * Com --plans, os números E.164 são conferidos com os planos de numeração do app
+ * (fontes .txt ou tabelas .npl); os que estão fora do plano são incluídos, mas contados.
+ */
+public final class FeedCompiler {
+    // Tamanho a partir do qual um bloco do arquivo é dividido entre tarefas
+    private static final int SPLIT_BYTES = 1 << 20;
+    private static final int MIN_NUMBER_DIGITS = 3;
+    private static final int MIN_PREFIX_DIGITS = 4;
+    private static final int MAX_DIGITS = 15;
+    private static final int LENGTH_SHIFT = 50;
+    private static final int MAX_SAMPLES = 20;
+    private static final int LOOKUP_KEYS = 1 << 16;
+    private static final int LOOKUP_ROUNDS = 20;
+
+    // Motivos de rejeição
+    private static final String[] REJECT_REASONS = {
+        "número inválido", "faixa inválida", "prefixo inválido ou curto demais", "endereço IPv4 inválido", "domínio inválido"
+    };
+    private static final int REJECT_NUMBER = 0;
+    private static final int REJECT_RANGE = 1;
+    private static final int REJECT_PREFIX = 2;
+    private static final int REJECT_ADDRESS = 3;
+    private static final int REJECT_DOMAIN = 4;
+
+    private FeedCompiler() {
+    }
+
+    /**
+     * Resultado da análise de um bloco do feed: faixas com inícios e fins ordenados
+     * (cada array de forma independente, como RangeIndex.buildSorted espera)
+     */
+    private static final class Chunk {
+        long[] starts = new long[16];
+        long[] ends = new long[16];
+        int ranges;
+        long[] addressStarts = new long[16];
+        long[] addressEnds = new long[16];
+        int addressRanges;
+        List<String> domains = new ArrayList<>();
+
+        int numbers;
+        int numberRanges;
+        int prefixes;
+        int addresses;
+        int outsidePlan;
+        final int[] rejected = new int[REJECT_REASONS.length];
+        final List<String> samples = new ArrayList<>();
+
+        void addRange(long start, long end) {
+            if (ranges == starts.length) {
+                starts = Arrays.copyOf(starts, ranges * 2);
+                ends = Arrays.copyOf(ends, ranges * 2);
+            }
+            starts[ranges] = start;
+            ends[ranges] = end;
+            ranges++;
+        }
+
+        void addAddressRange(long start, long end) {
+            if (addressRanges == addressStarts.length) {
+                addressStarts = Arrays.copyOf(addressStarts, addressRanges * 2);
+                addressEnds = Arrays.copyOf(addressEnds, addressRanges * 2);
+            }
+            addressStarts[addressRanges] = start;
+            addressEnds[addressRanges] = end;
+            addressRanges++;
+        }
+
+        void reject(int reason, String value) {
+            rejected[reason]++;
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(REJECT_REASONS[reason] + ": " + value);
+            }
+        }
+
+        void sort() {
+            Arrays.sort(starts, 0, ranges);
+            Arrays.sort(ends, 0, ranges);
+            Arrays.sort(addressStarts, 0, addressRanges);
+            Arrays.sort(addressEnds, 0, addressRanges);
+        }
+
+        // Intercala outro bloco já ordenado neste
+        Chunk merge(Chunk other) {
+            starts = mergeSorted(starts, ranges, other.starts, other.ranges);
+            ends = mergeSorted(ends, ranges, other.ends, other.ranges);
+            ranges += other.ranges;
+            addressStarts = mergeSorted(addressStarts, addressRanges, other.addressStarts, other.addressRanges);
+            addressEnds = mergeSorted(addressEnds, addressRanges, other.addressEnds, other.addressRanges);
+            addressRanges += other.addressRanges;
+            domains.addAll(other.domains);
+
+            numbers += other.numbers;
+            numberRanges += other.numberRanges;
+            prefixes += other.prefixes;
+            addresses += other.addresses;
+            outsidePlan += other.outsidePlan;
+            for (int i = 0; i < rejected.length; i++) {
+                rejected[i] += other.rejected[i];
+            }
+            for (int i = 0; i < other.samples.size() && samples.size() < MAX_SAMPLES; i++) {
+                samples.add(other.samples.get(i));
+            }
+            return this;
+        }
+    }
+
+    private static long[] mergeSorted(long[] a, int aCount, long[] b, int bCount) {
+        long[] merged = new long[Math.max(aCount + bCount, 16)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < aCount && j < bCount) {
+            merged[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+        }
+        System.arraycopy(a, i, merged, k, aCount - i);
+        k += aCount - i;
+        System.arraycopy(b, j, merged, k, bCount - j);
+        return merged;
+    }
+
+    /**
+     * Analisa e ordena um trecho do arquivo, dividindo-o em linhas inteiras
+     */
+    private static final class ParseTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+        private final int from;
+        private final int to;
+        private final Map<Integer, NumberingPlan> plans;
+
+        ParseTask(byte[] data, int from, int to, Map<Integer, NumberingPlan> plans) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.plans = plans;
+        }
+
+        @Override
+        protected Chunk compute() {
+            if (to - from > SPLIT_BYTES) {
+                // Divisão no fim da linha mais próxima do meio
+                int middle = from + (to - from) / 2;
+                while (middle < to && data[middle - 1] != '\n') {
+                    middle++;
+                }
+                if (middle < to) {
+                    ParseTask left = new ParseTask(data, from, middle, plans);
+                    left.fork();
+                    Chunk right = new ParseTask(data, middle, to, plans).compute();
+                    return left.join().merge(right);
+                }
+            }
+            Chunk chunk = parse(data, from, to, plans);
+            chunk.sort();
+            return chunk;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        File outputDir = null;
+        File plansDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean sequential = false;
+        List<File> feeds = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outputDir = new File(args[++i]);
+            } else if (args[i].equals("--plans") && i + 1 < args.length) {
+                plansDir = new File(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--sequential")) {
+                sequential = true;
+            } else {
+                feeds.add(new File(args[i]));
+            }
+        }
+        if (outputDir == null || feeds.isEmpty()) {
+            System.err.println("Uso: FeedCompiler -o <diretório> [--plans <diretório>] [--threads N | --sequential] <feed>...");
+            System.exit(2);
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.err.println("Não foi possível criar " + outputDir);
+            System.exit(1);
+        }
+        Map<Integer, NumberingPlan> plans = plansDir != null ? loadPlans(plansDir) : new HashMap<>();
+
+        // Análise e ordenação
+        long startNanos = System.nanoTime();
+        long inputBytes = 0;
+        Chunk result = new Chunk();
+        ForkJoinPool pool = new ForkJoinPool(sequential ? 1 : threads);
+        try {
+            for (File feed : feeds) {
+                byte[] data = Files.readAllBytes(feed.toPath());
+                inputBytes += data.length;
+                Chunk chunk;
+                if (sequential) {
+                    chunk = parse(data, 0, data.length, plans);
+                    chunk.sort();
+                } else {
+                    chunk = pool.invoke(new ParseTask(data, 0, data.length, plans));
+                }
+                result.merge(chunk);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long parseNanos = System.nanoTime() - startNanos;
+
+        // Mescla das faixas e deduplicação dos domínios
+        RangeIndex numbers = RangeIndex.buildSorted(result.starts, result.ends, result.ranges);
+        RangeIndex addresses = RangeIndex.buildSorted(result.addressStarts, result.addressEnds, result.addressRanges);
+        String[] domains = result.domains.toArray(new String[0]);
+        Arrays.sort(domains);
+        int uniqueDomains = 0;
+        for (int i = 0; i < domains.length; i++) {
+            if (i == 0 || !domains[i].equals(domains[i - 1])) {
+                domains[uniqueDomains++] = domains[i];
+            }
+        }
+        domains = Arrays.copyOf(domains, uniqueDomains);
+        long buildNanos = System.nanoTime() - startNanos - parseNanos;
+
+        File numbersFile = new File(outputDir, FeedIndex.NUMBERS_FILE);
+        File addressesFile = new File(outputDir, FeedIndex.IP_FILE);
+        File domainsFile = new File(outputDir, FeedIndex.DOMAINS_FILE);
+        writeRanges(numbersFile, numbers);
+        writeRanges(addressesFile, addresses);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(domainsFile), StandardCharsets.UTF_8))) {
+            for (String domain : domains) {
+                writer.write(domain);
+                writer.write('\n');
+            }
+        }
+
+        // Validação: o feed relido pelo mesmo código da triagem deve conter cada faixa gerada
+        FeedIndex index;
+        try (InputStream numbersIn = new FileInputStream(numbersFile);
+             InputStream addressesIn = new FileInputStream(addressesFile);
+             InputStream domainsIn = new FileInputStream(domainsFile)) {
+            index = FeedIndex.read(numbersIn, addressesIn, domainsIn);
+        }
+        if (index.getNumberRanges() != numbers.size() || index.getAddressRanges() != addresses.size()
+                || index.getDomains() != domains.length) {
+            throw new IOException("Os arquivos gerados não correspondem ao feed compilado");
+        }
+
+        StringBuilder report = new StringBuilder();
+        int entries = result.numbers + result.numberRanges + result.prefixes + result.addresses + result.domains.size();
+        int rejectedTotal = 0;
+        for (int count : result.rejected) {
+            rejectedTotal += count;
+        }
+        line(report, "Feeds: %d arquivo(s), %.1f MB", feeds.size(), inputBytes / 1e6);
+        line(report, "Entradas aceitas: %d (números %d, faixas %d, prefixos %d, IPv4 %d, domínios %d)", entries,
+                result.numbers, result.numberRanges, result.prefixes, result.addresses, result.domains.size());
+        line(report, "Entradas rejeitadas: %d", rejectedTotal);
+        for (int i = 0; i < REJECT_REASONS.length; i++) {
+            if (result.rejected[i] > 0) {
+                line(report, "  %s: %d", REJECT_REASONS[i], result.rejected[i]);
+            }
+        }
+        for (String sample : result.samples) {
+            line(report, "  ex.: %s", sample);
+        }
+        if (!plans.isEmpty()) {
+            line(report, "Números fora do plano de numeração (incluídos): %d", result.outsidePlan);
+        }
+        line(report, "Faixas de números após mescla: %d", numbers.size());
+        line(report, "Blocos IPv4 após mescla: %d", addresses.size());
+        line(report, "Domínios únicos: %d (%d repetidos)", domains.length, result.domains.size() - domains.length);
+        line(report, "%s: %d bytes", FeedIndex.NUMBERS_FILE, numbersFile.length());
+        line(report, "%s: %d bytes", FeedIndex.IP_FILE, addressesFile.length());
+        line(report, "%s: %d bytes", FeedIndex.DOMAINS_FILE, domainsFile.length());
+        long outputBytes = numbersFile.length() + addressesFile.length() + domainsFile.length();
+        line(report, "Bytes por entrada aceita: %.2f", entries == 0 ? 0 : (double) outputBytes / entries);
+        line(report, "Busca de número: até %d comparações, %.0f ns em média", depth(numbers.size()),
+                measureLookup(index, result, false));
+        if (domains.length > 0) {
+            line(report, "Busca de host SIP: %.0f ns em média", measureLookup(index, result, true));
+        }
+        line(report, "Análise e ordenação: %d ms (%s), mescla: %d ms", parseNanos / 1_000_000,
+                sequential ? "sequencial" : threads + " threads", buildNanos / 1_000_000);
+
+        System.out.print(report);
+        Files.write(new File(outputDir, "report.txt").toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Analisa as linhas de um trecho do arquivo
+    private static Chunk parse(byte[] data, int from, int to, Map<Integer, NumberingPlan> plans) {
+        Chunk chunk = new Chunk();
+        int lineStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || data[i] == '\n') {
+                int lineEnd = i;
+                if (lineEnd > lineStart && data[lineEnd - 1] == '\r') {
+                    lineEnd--;
+                }
+                if (lineEnd > lineStart) {
+                    parseLine(new String(data, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8), chunk, plans);
+                }
+                lineStart = i + 1;
+            }
+        }
+        return chunk;
+    }
+
+    private static void parseLine(String line, Chunk chunk, Map<Integer, NumberingPlan> plans) {
+        int separator = line.indexOf(',');
+        int tab = line.indexOf('\t');
+        if (tab >= 0 && (separator < 0 || tab < separator)) {
+            separator = tab;
+        }
+        String value = (separator >= 0 ? line.substring(0, separator) : line).trim();
+        if (value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        if (value.isEmpty() || value.startsWith("#") || value.equalsIgnoreCase("valor")
+                || value.equalsIgnoreCase("value") || value.equalsIgnoreCase("número") || value.equalsIgnoreCase("number")) {
+            return;
+        }
+
+        if (value.endsWith("*")) {
+            addPrefix(value.substring(0, value.length() - 1), chunk);
+        } else if (value.indexOf('/') >= 0 || FeedIndex.parseIpv4(value) != RangeIndex.INVALID) {
+            long[] block = FeedIndex.parseCidr(value);
+            if (block == null) {
+                chunk.reject(REJECT_ADDRESS, value);
+            } else {
+                chunk.addAddressRange(block[0], block[1]);
+                chunk.addresses++;
+            }
+        } else if (value.contains("..") || value.endsWith("X") || value.endsWith("x")) {
+            long[] range = RangeIndex.parseRange(value);
+            if (range == null) {
+                chunk.reject(REJECT_RANGE, value);
+            } else {
+                chunk.addRange(range[0], range[1]);
+                chunk.numberRanges++;
+            }
+        } else if (isNumberLike(value)) {
+            // Mesma chave que a triagem calcula para o número normalizado
+            long key = RangeIndex.key(value);
+            if (key == RangeIndex.INVALID || (key >>> LENGTH_SHIFT) < MIN_NUMBER_DIGITS) {
+                chunk.reject(REJECT_NUMBER, value);
+                return;
+            }
+            chunk.addRange(key, key);
+            chunk.numbers++;
+            if (value.charAt(0) == '+' && !plans.isEmpty() && !isInPlan(key, plans)) {
+                chunk.outsidePlan++;
+            }
+        } else {
+            String domain = FeedIndex.normalizeDomain(value);
+            if (domain == null) {
+                chunk.reject(REJECT_DOMAIN, value);
+            } else {
+                chunk.domains.add(domain);
+            }
+        }
+    }
+
+    // Apenas dígitos e a pontuação usual de números de telefone
+    private static boolean isNumberLike(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9') && c != '+' && c != ' ' && c != '-' && c != '(' && c != ')' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Um prefixo vira uma faixa por comprimento possível do número completo
+    private static void addPrefix(String prefix, Chunk chunk) {
+        long key = isNumberLike(prefix) ? RangeIndex.key(prefix) : RangeIndex.INVALID;
+        int digits = key == RangeIndex.INVALID ? 0 : (int) (key >>> LENGTH_SHIFT);
+        if (digits < MIN_PREFIX_DIGITS) {
+            chunk.reject(REJECT_PREFIX, prefix + "*");
+            return;
+        }
+        long value = key & ((1L << LENGTH_SHIFT) - 1);
+        long scale = 1;
+        for (int length = digits; length <= MAX_DIGITS; length++) {
+            long start = ((long) length << LENGTH_SHIFT) | (value * scale);
+            chunk.addRange(start, start + scale - 1);
+            scale *= 10;
+        }
+        chunk.prefixes++;
+    }
+
+    // Confere um número E.164 com o plano do seu país; países sem plano não são contados
+    private static boolean isInPlan(long key, Map<Integer, NumberingPlan> plans) {
+        int length = (int) (key >>> LENGTH_SHIFT);
+        long value = key & ((1L << LENGTH_SHIFT) - 1);
+        String digits = Long.toString(value);
+        if (digits.length() != length) {
+            return false; // Zeros à esquerda: não é E.164
+        }
+        int codeLength = NumberingPlan.countryCodeLength(digits);
+        if (codeLength >= length) {
+            return false;
+        }
+        NumberingPlan plan = plans.get(Integer.parseInt(digits.substring(0, codeLength)));
+        return plan == null
+                || plan.validate(Long.parseLong(digits.substring(codeLength)), length - codeLength) == NumberingPlan.RESULT_VALID;
+    }
+
+    private static Map<Integer, NumberingPlan> loadPlans(File dir) throws IOException {
+        Map<Integer, NumberingPlan> plans = new HashMap<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Diretório de planos inválido: " + dir);
+        }
+        for (File file : files) {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (file.getName().endsWith(".txt")) {
+                bytes = NumberingPlan.compile(new String(bytes, StandardCharsets.UTF_8));
+            } else if (!file.getName().endsWith(".npl")) {
+                continue;
+            }
+            NumberingPlan plan = NumberingPlan.open(ByteBuffer.wrap(bytes));
+            plans.put(plan.getCountryCode(), plan);
+        }
+        return plans;
+    }
+
+    private static void writeRanges(File file, RangeIndex ranges) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            ranges.writeTo(out);
+        }
+    }
+
+    // Tempo médio de FeedIndex.matches sobre chaves do feed (acertos) e aleatórias (em geral erros)
+    private static double measureLookup(FeedIndex index, Chunk result, boolean hosts) {
+        Random random = new Random(42);
+        long[] keys = new long[LOOKUP_KEYS];
+        String[] uris = new String[LOOKUP_KEYS];
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            if (hosts) {
+                String domain = result.domains.get(random.nextInt(result.domains.size()));
+                keys[i] = RangeIndex.INVALID;
+                uris[i] = i % 2 == 0 ? "sip:100@pbx." + domain : "sip:100@pbx" + i + ".example.org";
+            } else {
+                int length = 8 + random.nextInt(6);
+                keys[i] = i % 2 == 0 && result.ranges > 0
+                        ? result.starts[random.nextInt(result.ranges)]
+                        : ((long) length << LENGTH_SHIFT) | (long) (random.nextDouble() * Math.pow(10, length));
+                uris[i] = "";
+            }
+        }
+
+        long bestNanos = Long.MAX_VALUE;
+        int hits = 0;
+        for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+            hits = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUP_KEYS; i++) {
+                if (index.matches(keys[i], uris[i])) {
+                    hits++;
+                }
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        if ((hosts || result.ranges > 0) && hits < LOOKUP_KEYS / 2) {
+            throw new IllegalStateException("Entradas do feed não encontradas no índice gerado");
+        }
+        return (double) bestNanos / LOOKUP_KEYS;
+    }
+
+    // Comparações da pesquisa binária no pior caso
+    private static int depth(int ranges) {
+        return 32 - Integer.numberOfLeadingZeros(ranges);
+    }
+
+    private static void line(StringBuilder report, String format, Object... args) {
+        report.append(String.format(format, args)).append('\n');
+    }
+}
@@ -0,0 +1,218 @@
+package com.bruno.callshield;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Feed de spam compilado em tempo de release (ver FeedCompiler) e empacotado nos assets.
+ *
+ * Três arquivos, todos opcionais:
+ *   numbers.rng  números, faixas e prefixos como um RangeIndex (mesmo formato de ranges_*.bin)
+ *   ip.rng       endereços/blocos IPv4 como um RangeIndex de valores de 32 bits
+ *   domains.txt  domínios SIP, um por linha, normalizados e em ordem lexicográfica
+ *
+ * As funções de normalização são as mesmas no compilador e na triagem, para que uma
+ * entrada do feed e o número/URI de uma chamada produzam sempre a mesma chave.
+ */
+public final class FeedIndex {
+    public static final String NUMBERS_FILE = "numbers.rng";
+    public static final String IP_FILE = "ip.rng";
+    public static final String DOMAINS_FILE = "domains.txt";
+
+    public static final FeedIndex EMPTY = new FeedIndex(RangeIndex.EMPTY, RangeIndex.EMPTY, new String[0]);
+
+    private final RangeIndex numbers;
+    private final RangeIndex addresses;
+    private final String[] domains;
+
+    public FeedIndex(RangeIndex numbers, RangeIndex addresses, String[] sortedDomains) {
+        this.numbers = numbers;
+        this.addresses = addresses;
+        this.domains = sortedDomains;
+    }
+
+    /**
+     * Verifica se a chamada está no feed, pelo número ou pelo host da URI SIP
+     * @param numberKey Chave do número (RangeIndex.key)
+     * @param rawNumber Número/URI original da chamada
+     */
+    public boolean matches(long numberKey, String rawNumber) {
+        if (numbers.contains(numberKey)) {
+            return true;
+        }
+        String host = hostOf(rawNumber);
+        if (host == null) {
+            return false;
+        }
+        long address = parseIpv4(host);
+        return address != RangeIndex.INVALID ? addresses.contains(address) : matchesDomain(host);
+    }
+
+    // O domínio ou qualquer domínio pai está no feed (a.b.spam.com casa com spam.com)
+    private boolean matchesDomain(String host) {
+        if (domains.length == 0) {
+            return false;
+        }
+        int start = 0;
+        while (start >= 0) {
+            if (Arrays.binarySearch(domains, host.substring(start)) >= 0) {
+                return true;
+            }
+            int dot = host.indexOf('.', start);
+            start = dot >= 0 ? dot + 1 : -1;
+        }
+        return false;
+    }
+
+    public int getNumberRanges() {
+        return numbers.size();
+    }
+
+    public int getAddressRanges() {
+        return addresses.size();
+    }
+
+    public int getDomains() {
+        return domains.length;
+    }
+
+    /**
+     * Host de uma URI SIP ("sip:usuario@host:porta;parâmetros"), em minúsculas
+     * @return o host, ou null se não houver '@'
+     */
+    public static String hostOf(String uri) {
+        if (uri == null) {
+            return null;
+        }
+        int at = uri.lastIndexOf('@');
+        if (at < 0) {
+            return null;
+        }
+        int end = at + 1;
+        while (end < uri.length()) {
+            char c = uri.charAt(end);
+            if (c == ':' || c == ';' || c == '>' || c == '?') {
+                break;
+            }
+            end++;
+        }
+        return end > at + 1 ? uri.substring(at + 1, end).toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Endereço IPv4 em notação decimal com pontos
+     * @return o endereço como valor sem sinal, ou RangeIndex.INVALID
+     */
+    public static long parseIpv4(String value) {
+        long address = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return RangeIndex.INVALID;
+                }
+            } else if (c == '.' && octet >= 0 && octets < 4) {
+                address = (address << 8) | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return RangeIndex.INVALID;
+            }
+        }
+        return octets == 4 ? address : RangeIndex.INVALID;
+    }
+
+    /**
+     * Bloco CIDR ("10.0.0.0/8") ou endereço único
+     * @return {início, fim} do bloco, ou null se o valor for inválido
+     */
+    public static long[] parseCidr(String value) {
+        int slash = value.indexOf('/');
+        long address = parseIpv4(slash >= 0 ? value.substring(0, slash) : value);
+        if (address == RangeIndex.INVALID) {
+            return null;
+        }
+        int prefixLength = 32;
+        if (slash >= 0) {
+            try {
+                prefixLength = Integer.parseInt(value.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (prefixLength < 0 || prefixLength > 32) {
+                return null;
+            }
+        }
+        long hostMask = (1L << (32 - prefixLength)) - 1;
+        long start = address & ~hostMask & 0xFFFFFFFFL;
+        return new long[] { start, start | hostMask };
+    }
+
+    /**
+     * Normaliza um domínio SIP do feed: minúsculas, sem "sip:", "*." ou ponto final
+     * @return o domínio, ou null se não for um nome de host válido com ao menos um ponto
+     */
+    public static String normalizeDomain(String value) {
+        String domain = value.trim().toLowerCase(Locale.ROOT);
+        if (domain.startsWith("sip:") || domain.startsWith("sips:")) {
+            domain = domain.substring(domain.indexOf(':') + 1);
+        }
+        int at = domain.lastIndexOf('@');
+        if (at >= 0) {
+            domain = domain.substring(at + 1);
+        }
+        if (domain.startsWith("*.")) {
+            domain = domain.substring(2);
+        }
+        if (domain.endsWith(".")) {
+            domain = domain.substring(0, domain.length() - 1);
+        }
+        if (domain.isEmpty() || domain.length() > 253 || domain.indexOf('.') < 0
+                || domain.startsWith(".") || domain.contains("..")) {
+            return null;
+        }
+        for (int i = 0; i < domain.length(); i++) {
+            char c = domain.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '-' && c != '.') {
+                return null;
+            }
+        }
+        return domain;
+    }
+
+    /**
+     * Lê o feed a partir dos arquivos compilados
+     * @param numbersIn numbers.rng, ou null
+     * @param addressesIn ip.rng, ou null
+     * @param domainsIn domains.txt, ou null
+     */
+    public static FeedIndex read(InputStream numbersIn, InputStream addressesIn, InputStream domainsIn) throws IOException {
+        RangeIndex numbers = numbersIn != null ? RangeIndex.readFrom(new DataInputStream(numbersIn)) : RangeIndex.EMPTY;
+        RangeIndex addresses = addressesIn != null ? RangeIndex.readFrom(new DataInputStream(addressesIn)) : RangeIndex.EMPTY;
+        List<String> domains = new ArrayList<>();
+        if (domainsIn != null) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(domainsIn, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    domains.add(line);
+                }
+            }
+        }
+        // O arquivo já vem ordenado do compilador; ordenar de novo protege contra edição manual
+        String[] sorted = domains.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return new FeedIndex(numbers, addresses, sorted);
+    }
+}
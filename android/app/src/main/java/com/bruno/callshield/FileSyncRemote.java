@@ -0,0 +1,114 @@
+package com.bruno.callshield;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remoto de sincronização num diretório local: um arquivo "&lt;origem&gt;-&lt;destino&gt;.syp" por patch.
+ * Útil para testes e para importar listas da comunidade baixadas por outro meio.
+ * Um patch consolidado (ex.: 0-500) permite que dispositivos novos pulem o histórico.
+ */
+public class FileSyncRemote implements SyncRemote {
+    private static final String EXTENSION = ".syp";
+
+    private final File directory;
+
+    public FileSyncRemote(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public synchronized List<byte[]> fetchSince(long version) throws IOException {
+        List<long[]> available = listPatches();
+        List<byte[]> chain = new ArrayList<>();
+        long current = version;
+        while (true) {
+            // Entre os patches que partem da versão atual, preferir o que avança mais
+            long next = -1;
+            for (long[] patch : available) {
+                if (patch[0] == current && patch[1] > next) {
+                    next = patch[1];
+                }
+            }
+            if (next < 0) {
+                return chain;
+            }
+            chain.add(read(new File(directory, current + "-" + next + EXTENSION)));
+            current = next;
+        }
+    }
+
+    @Override
+    public synchronized boolean push(long fromVersion, long toVersion, byte[] patch) throws IOException {
+        if (head() != fromVersion) {
+            return false;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Não foi possível criar " + directory);
+        }
+        File file = new File(directory, fromVersion + "-" + toVersion + EXTENSION);
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(patch);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Não foi possível salvar " + file);
+        }
+        return true;
+    }
+
+    // Versão mais recente disponível no diretório
+    private long head() {
+        long head = 0;
+        for (long[] patch : listPatches()) {
+            head = Math.max(head, patch[1]);
+        }
+        return head;
+    }
+
+    // Pares {origem, destino} dos arquivos de patch presentes
+    private List<long[]> listPatches() {
+        List<long[]> patches = new ArrayList<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return patches;
+        }
+        for (String name : names) {
+            if (!name.endsWith(EXTENSION)) {
+                continue;
+            }
+            int dash = name.indexOf('-');
+            try {
+                long from = Long.parseLong(name.substring(0, dash));
+                long to = Long.parseLong(name.substring(dash + 1, name.length() - EXTENSION.length()));
+                if (to > from) {
+                    patches.add(new long[] { from, to });
+                }
+            } catch (RuntimeException e) {
+                // Arquivo com nome fora do padrão: ignorar
+            }
+        }
+        return patches;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new IOException("Arquivo truncado: " + file);
+                }
+                offset += read;
+            }
+        }
+        return data;
+    }
+}
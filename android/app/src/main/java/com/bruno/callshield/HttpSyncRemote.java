@@ -0,0 +1,94 @@
+package com.bruno.callshield;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remoto de sincronização via HTTP.
+ *
+ * GET  {base}/patches?since=N        -> sequência de patches, cada um precedido do tamanho (int big-endian)
+ * POST {base}/patches?from=A&amp;to=B   -> 200/201 aceito, 409 conflito
+ */
+public class HttpSyncRemote implements SyncRemote {
+    private static final int TIMEOUT_MS = 15000;
+    private static final int MAX_PATCH_SIZE = 16 * 1024 * 1024;
+
+    private final String baseUrl;
+
+    public HttpSyncRemote(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public List<byte[]> fetchSince(long version) throws IOException {
+        HttpURLConnection connection = open(baseUrl + "/patches?since=" + version);
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NO_CONTENT) {
+                return new ArrayList<>();
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Falha ao buscar patches: HTTP " + status);
+            }
+
+            List<byte[]> patches = new ArrayList<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        return patches;
+                    }
+                    if (length < 0 || length > MAX_PATCH_SIZE) {
+                        throw new IOException("Tamanho de patch inválido: " + length);
+                    }
+                    byte[] patch = new byte[length];
+                    in.readFully(patch);
+                    patches.add(patch);
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public boolean push(long fromVersion, long toVersion, byte[] patch) throws IOException {
+        HttpURLConnection connection = open(baseUrl + "/patches?from=" + fromVersion + "&to=" + toVersion);
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(patch.length);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(patch);
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_CONFLICT) {
+                return false;
+            }
+            if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_CREATED) {
+                throw new IOException("Falha ao enviar patch: HTTP " + status);
+            }
+            return true;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        return connection;
+    }
+}
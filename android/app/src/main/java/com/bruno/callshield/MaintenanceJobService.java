@@ -0,0 +1,44 @@
+package com.bruno.callshield;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * JobService que executa a janela de manutenção agendada pelo MaintenanceScheduler
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class MaintenanceJobService extends JobService {
+    private static final String TAG = "MaintenanceJobService";
+
+    // Executor para processamento em segundo plano
+    private final Executor backgroundExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Log.d(TAG, "Janela de manutenção iniciada");
+
+        backgroundExecutor.execute(() -> {
+            MaintenanceScheduler.get(getApplicationContext()).runPendingBatch();
+            jobFinished(params, false);
+        });
+
+        // O trabalho continua em segundo plano
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // As tarefas que não chegaram a rodar continuam pendentes, e o próprio
+        // MaintenanceScheduler reagenda a janela ao encerrar o lote; não pedir
+        // reagendamento ao sistema evita uma segunda janela para o mesmo trabalho
+        MaintenanceScheduler.get(getApplicationContext()).requestStop();
+        return false;
+    }
+}
@@ -0,0 +1,309 @@
+package com.bruno.callshield;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Agendador de manutenção adiável.
+ *
+ * Trabalhos não urgentes (snapshot de cache, sincronização) são marcados
+ * como pendentes e executados juntos numa única janela do JobScheduler, em
+ * vez de acordar o dispositivo a cada disparo.
+ */
+public class MaintenanceScheduler {
+    private static final String TAG = "MaintenanceScheduler";
+    private static final String PREFS_NAME = "MaintenancePrefs";
+    private static final String KEY_PENDING_PREFIX = "pending.";
+    private static final String KEY_RUNS_PREFIX = "runs.";
+    private static final String KEY_CPU_MS_PREFIX = "cpuMs.";
+    private static final String KEY_WALL_MS_PREFIX = "wallMs.";
+    private static final String KEY_WAKEUPS = "wakeups";
+    private static final String KEY_BATCHED_TASKS = "batchedTasks";
+    static final int JOB_ID = 2601;
+
+    // Identificadores das tarefas adiáveis conhecidas
+    public static final String TASK_CACHE_SNAPSHOT = "cache_snapshot";
+    public static final String TASK_CLOUD_SYNC = "cloud_sync";
+
+    private static MaintenanceScheduler instance;
+
+    /**
+     * Política de uma tarefa: atraso máximo tolerado e se precisa de rede
+     */
+    private static final class TaskPolicy {
+        final long maxDelayMs;
+        final boolean requiresUnmeteredNetwork;
+        final Runnable work;
+
+        TaskPolicy(long maxDelayMs, boolean requiresUnmeteredNetwork, Runnable work) {
+            this.maxDelayMs = maxDelayMs;
+            this.requiresUnmeteredNetwork = requiresUnmeteredNetwork;
+            this.work = work;
+        }
+    }
+
+    private final Context context;
+    private final SharedPreferences preferences;
+    private final BatteryOptimizationManager batteryOptimizationManager;
+
+    // Tarefas registradas neste processo
+    private final Map<String, TaskPolicy> tasks = new HashMap<>();
+
+    // Espelho em memória das tarefas pendentes (id -> instante em que foi enfileirada)
+    private final Map<String, Long> pending = new HashMap<>();
+
+    // Pedido do sistema para encerrar a janela atual (ver MaintenanceJobService.onStopJob)
+    private volatile boolean stopRequested;
+
+    // Tarefa pedida pelo usuário: a próxima janela não espera ociosidade nem carregador
+    private boolean expedited;
+
+    private MaintenanceScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.preferences = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.batteryOptimizationManager = new BatteryOptimizationManager(this.context);
+
+        // Recuperar tarefas pendentes de um processo anterior
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(KEY_PENDING_PREFIX) && entry.getValue() instanceof Long) {
+                pending.put(entry.getKey().substring(KEY_PENDING_PREFIX.length()), (Long) entry.getValue());
+            }
+        }
+
+        registerDefaultTasks();
+    }
+
+    /**
+     * Obtém a instância do processo atual. As tarefas padrão são registradas aqui
+     * para que o JobService encontre as mesmas tarefas em qualquer processo.
+     */
+    public static synchronized MaintenanceScheduler get(Context context) {
+        if (instance == null) {
+            instance = new MaintenanceScheduler(context);
+        }
+        return instance;
+    }
+
+    // Tarefas conhecidas pelo app
+    private void registerDefaultTasks() {
+        register(TASK_CACHE_SNAPSHOT, 6 * 60 * 60 * 1000L, false, () -> {
+            VoipCallBlocker.INSTANCE.initialize(context);
+            VoipCallBlocker.INSTANCE.snapshotDecisionCache();
+        });
+        register(TASK_CLOUD_SYNC, 24 * 60 * 60 * 1000L, true, () -> {
+            VoipCallBlocker.INSTANCE.initialize(context);
+            SyncEngine.INSTANCE.initialize(context);
+            try {
+                SyncEngine.INSTANCE.sync();
+            } catch (IOException e) {
+                // Tentar de novo na próxima janela
+                Log.w(TAG, "Sincronização falhou", e);
+                schedule(TASK_CLOUD_SYNC);
+            }
+        });
+    }
+
+    /**
+     * Registra uma tarefa adiável
+     * @param taskId Identificador da tarefa
+     * @param maxDelayMs Atraso máximo até a tarefa ser executada mesmo sem as condições ideais
+     * @param requiresUnmeteredNetwork Se a tarefa precisa de rede não tarifada
+     * @param work Trabalho a executar (chamado numa thread de segundo plano)
+     */
+    public synchronized void register(String taskId, long maxDelayMs, boolean requiresUnmeteredNetwork, Runnable work) {
+        tasks.put(taskId, new TaskPolicy(maxDelayMs, requiresUnmeteredNetwork, work));
+    }
+
+    /**
+     * Marca uma tarefa como pendente. Chamadas repetidas antes da próxima janela
+     * são agrupadas e não reagendam o job.
+     */
+    public void schedule(String taskId) {
+        synchronized (this) {
+            if (!markPending(taskId)) {
+                return;
+            }
+        }
+        scheduleWindow();
+    }
+
+    /**
+     * Marca uma tarefa como pendente e antecipa a janela, que roda assim que houver rede
+     * (de qualquer tipo), sem esperar ociosidade nem carregador. Para pedidos explícitos do usuário.
+     */
+    public void expedite(String taskId) {
+        synchronized (this) {
+            markPending(taskId);
+            expedited = true;
+        }
+        scheduleWindow();
+    }
+
+    // Registra a tarefa como pendente (memória e preferências); false se já estava
+    private boolean markPending(String taskId) {
+        if (pending.containsKey(taskId)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        pending.put(taskId, now);
+        preferences.edit().putLong(KEY_PENDING_PREFIX + taskId, now).apply();
+        return true;
+    }
+
+    // (Re)agenda a janela de manutenção com base nas tarefas pendentes
+    private void scheduleWindow() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+
+        long deadline = Long.MAX_VALUE;
+        boolean needsUnmetered = false;
+        boolean urgent;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            urgent = expedited;
+            for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                TaskPolicy policy = tasks.get(entry.getKey());
+                long maxDelay = (policy != null) ? policy.maxDelayMs : 24 * 60 * 60 * 1000L;
+                deadline = Math.min(deadline, entry.getValue() + maxDelay);
+                needsUnmetered |= policy != null && policy.requiresUnmeteredNetwork;
+            }
+        }
+        if (urgent && !needsUnmetered) {
+            deadline = System.currentTimeMillis();
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(context, MaintenanceJobService.class))
+                .setOverrideDeadline(Math.max(0, deadline - System.currentTimeMillis()));
+
+        if (urgent) {
+            // Pedido do usuário: rodar já, com qualquer rede (ver expedite)
+            if (needsUnmetered) {
+                builder.setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY);
+            }
+        } else {
+            if (batteryOptimizationManager.isIgnoringBatteryOptimizations()) {
+                // Isento: o sistema não agrupa nossos wakeups, então exigimos carregador e ociosidade
+                builder.setRequiresCharging(true);
+                builder.setRequiresDeviceIdle(true);
+            } else {
+                // Sujeito ao Doze: aproveitar as janelas de manutenção do próprio sistema
+                builder.setRequiresDeviceIdle(true);
+            }
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                builder.setRequiresBatteryNotLow(true);
+            }
+
+            if (needsUnmetered) {
+                builder.setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED);
+            }
+        }
+
+        try {
+            JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+            jobScheduler.schedule(builder.build());
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao agendar janela de manutenção", e);
+        }
+    }
+
+    /**
+     * Executa todas as tarefas pendentes numa única janela.
+     * Chamado pelo MaintenanceJobService em segundo plano.
+     *
+     * Cada tarefa só sai das pendentes (memória e preferências) quando começa a rodar: se a
+     * janela for interrompida, ou o processo morrer, as que faltam continuam pendentes e
+     * voltam na próxima janela.
+     */
+    void runPendingBatch() {
+        Set<String> batch;
+        synchronized (this) {
+            stopRequested = false;
+            expedited = false;
+            batch = new HashSet<>(pending.keySet());
+        }
+
+        SharedPreferences.Editor stats = preferences.edit();
+        stats.putLong(KEY_WAKEUPS, preferences.getLong(KEY_WAKEUPS, 0) + 1);
+
+        int executed = 0;
+        for (String taskId : batch) {
+            if (stopRequested) {
+                Log.d(TAG, "Janela interrompida; " + (batch.size() - executed) + " tarefas ficam para a próxima");
+                break;
+            }
+
+            TaskPolicy policy;
+            synchronized (this) {
+                policy = tasks.get(taskId);
+                // Retirar antes de rodar: a própria tarefa pode se reenfileirar
+                pending.remove(taskId);
+                preferences.edit().remove(KEY_PENDING_PREFIX + taskId).apply();
+            }
+            executed++;
+            if (policy == null) {
+                Log.w(TAG, "Tarefa de manutenção desconhecida: " + taskId);
+                continue;
+            }
+
+            long cpuStart = SystemClock.currentThreadTimeMillis();
+            long wallStart = SystemClock.elapsedRealtime();
+            try {
+                policy.work.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Erro na tarefa de manutenção " + taskId, e);
+            }
+            long cpuMs = SystemClock.currentThreadTimeMillis() - cpuStart;
+            long wallMs = SystemClock.elapsedRealtime() - wallStart;
+
+            stats.putLong(KEY_RUNS_PREFIX + taskId, preferences.getLong(KEY_RUNS_PREFIX + taskId, 0) + 1);
+            stats.putLong(KEY_CPU_MS_PREFIX + taskId, preferences.getLong(KEY_CPU_MS_PREFIX + taskId, 0) + cpuMs);
+            stats.putLong(KEY_WALL_MS_PREFIX + taskId, preferences.getLong(KEY_WALL_MS_PREFIX + taskId, 0) + wallMs);
+        }
+        stats.putLong(KEY_BATCHED_TASKS, preferences.getLong(KEY_BATCHED_TASKS, 0) + executed);
+        stats.apply();
+
+        // Tarefas enfileiradas durante a janela, ou que não chegaram a rodar, vão para a próxima
+        scheduleWindow();
+    }
+
+    /**
+     * Pede o encerramento da janela em andamento: a tarefa atual termina e as demais
+     * continuam pendentes
+     */
+    void requestStop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Estatísticas acumuladas: wakeups, tarefas agrupadas e, por tarefa, execuções e tempo de CPU/relógio
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new HashMap<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(KEY_PENDING_PREFIX) && entry.getValue() instanceof Long) {
+                stats.put(key, (Long) entry.getValue());
+            }
+        }
+        synchronized (this) {
+            stats.put("pending", (long) pending.size());
+        }
+        return stats;
+    }
+}
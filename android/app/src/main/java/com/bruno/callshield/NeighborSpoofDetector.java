@@ -0,0 +1,476 @@
+package com.bruno.callshield;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CallLog;
+import android.provider.ContactsContract;
+import android.telecom.PhoneAccount;
+import android.telecom.PhoneAccountHandle;
+import android.telecom.TelecomManager;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Detector de "neighbor spoofing": chamadas de números que imitam o código de área
+ * e os primeiros dígitos do próprio número do usuário.
+ *
+ * Os números são empacotados em um long (BCD alinhado à esquerda, 4 bits por dígito,
+ * com o comprimento no nibble superior), de modo que o prefixo comum entre dois números
+ * sai de um XOR e um numberOfLeadingZeros, sem criar strings durante a triagem.
+ */
+public class NeighborSpoofDetector {
+    private static final String TAG = "NeighborSpoofDetector";
+    private static final String PREFS_NAME = "NeighborSpoofPrefs";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_OWN_NUMBERS = "ownNumbers";
+    private static final String KEY_MIN_SHARED_DIGITS = "minSharedDigits";
+    private static final int DEFAULT_MIN_SHARED_DIGITS = 5; // Código de área + primeiros dígitos
+    private static final int TRUSTED_HISTORY_LIMIT = 500;
+    private static final long TRUSTED_REFRESH_DELAY_MS = 5000; // Agrupa rajadas de alterações
+
+    // Valor de número inválido/vazio
+    public static final long INVALID = -1L;
+
+    // Máximo de dígitos E.164
+    private static final int MAX_DIGITS = 15;
+    private static final long DIGITS_MASK = (1L << 60) - 1;
+
+    // Singleton instance
+    public static final NeighborSpoofDetector INSTANCE = new NeighborSpoofDetector();
+
+    // Executor para operações em segundo plano
+    private final Executor backgroundExecutor = Executors.newSingleThreadExecutor();
+
+    // Handler para agrupar as notificações de alteração da agenda e do histórico
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshTrusted = () -> backgroundExecutor.execute(this::reloadTrusted);
+
+    // Observadores registrados e primeira carga concluída (acessados apenas pelo backgroundExecutor)
+    private boolean observing;
+    private boolean loaded;
+
+    // Agenda ou histórico mudou: os números confiáveis são relidos depois de um intervalo
+    private final ContentObserver trustedObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            mainHandler.removeCallbacks(refreshTrusted);
+            mainHandler.postDelayed(refreshTrusted, TRUSTED_REFRESH_DELAY_MS);
+        }
+    };
+
+    private Context context;
+    private SharedPreferences preferences;
+
+    // Estado publicado atomicamente para a thread de triagem
+    private volatile boolean enabled;
+    private volatile boolean active; // Ativo e com os números confiáveis já carregados
+    private volatile int minSharedDigits = DEFAULT_MIN_SHARED_DIGITS;
+    private volatile long[] ownNumbers = new long[0];
+    private volatile long[] trustedNumbers = new long[0]; // Ordenado para busca binária
+
+    // Código de país do usuário, acumulado em BCD alinhado à direita
+    private volatile long countryPrefix;
+    private volatile int countryPrefixLength;
+    private volatile int countryCode;
+
+    private NeighborSpoofDetector() {
+    }
+
+    // Método para inicializar o contexto
+    public void initialize(Context appContext) {
+        if (this.context == null) {
+            this.context = appContext.getApplicationContext();
+            this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            this.enabled = preferences.getBoolean(KEY_ENABLED, false);
+
+            // Carregar números próprios (e, se ativo, agenda e histórico) em segundo plano
+            backgroundExecutor.execute(this::reload);
+        }
+    }
+
+    // Acompanha a agenda e o histórico de chamadas enquanto o detector estiver ativo
+    private void updateTrustedObservers(boolean observe) {
+        if (observe == observing) {
+            return;
+        }
+        if (!observe) {
+            context.getContentResolver().unregisterContentObserver(trustedObserver);
+            mainHandler.removeCallbacks(refreshTrusted);
+            observing = false;
+            return;
+        }
+        try {
+            context.getContentResolver().registerContentObserver(CallLog.Calls.CONTENT_URI, true, trustedObserver);
+            context.getContentResolver().registerContentObserver(ContactsContract.CommonDataKinds.Phone.CONTENT_URI, true, trustedObserver);
+            observing = true;
+        } catch (SecurityException e) {
+            Log.w(TAG, "Sem permissão para acompanhar agenda/histórico", e);
+            context.getContentResolver().unregisterContentObserver(trustedObserver);
+        }
+    }
+
+    /**
+     * Atualiza a configuração definida pelo usuário
+     * @param enabled Se a detecção está ativa
+     * @param userNumbers Números próprios informados pelo usuário (complementam SIM/PhoneAccount)
+     * @param minShared Dígitos nacionais em comum a partir dos quais a chamada é suspeita
+     */
+    public void configure(boolean enabled, Set<String> userNumbers, int minShared) {
+        if (preferences == null) {
+            return;
+        }
+
+        SharedPreferences.Editor editor = preferences.edit()
+                .putBoolean(KEY_ENABLED, enabled)
+                .putInt(KEY_MIN_SHARED_DIGITS, minShared);
+        if (userNumbers != null) {
+            editor.putStringSet(KEY_OWN_NUMBERS, new HashSet<>(userNumbers));
+        }
+        editor.apply();
+
+        this.enabled = enabled;
+        backgroundExecutor.execute(this::reload);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Código de país do usuário, aprendido dos números próprios (0 = desconhecido)
+     */
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    /**
+     * Verifica se a chamada parece um neighbor spoofing. Números da agenda
+     * ou do histórico de chamadas nunca são considerados suspeitos.
+     */
+    public boolean isSuspect(String number) {
+        if (!active || number == null) {
+            return false;
+        }
+
+        long packed = pack(number, countryPrefix, countryPrefixLength);
+        if (packed == INVALID || Arrays.binarySearch(trustedNumbers, packed) >= 0) {
+            return false;
+        }
+        return sharedNationalDigits(packed) >= minSharedDigits;
+    }
+
+    // Maior número de dígitos nacionais em comum com algum número próprio de mesmo comprimento
+    private int sharedNationalDigits(long packed) {
+        int best = 0;
+        int length = length(packed);
+        for (long own : ownNumbers) {
+            if (length(own) == length) {
+                best = Math.max(best, sharedPrefix(own, packed) - countryPrefixLength);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Empacota um número em BCD alinhado à esquerda com o comprimento no nibble superior.
+     * Números nacionais recebem o código de país informado; um zero de tronco inicial é descartado.
+     * @return o número empacotado ou INVALID
+     */
+    static long pack(CharSequence number, long countryPrefix, int countryPrefixLength) {
+        if (number == null) {
+            return INVALID;
+        }
+
+        int n = number.length();
+        int i = 0;
+        boolean international = false;
+
+        // Pular separadores iniciais, detectando o prefixo internacional '+'
+        while (i < n && !isDigit(number.charAt(i))) {
+            char c = number.charAt(i);
+            if (c == '@' || c == ';') {
+                return INVALID;
+            }
+            international |= c == '+';
+            i++;
+        }
+
+        // Prefixo internacional "00"
+        if (!international && i + 1 < n && number.charAt(i) == '0' && number.charAt(i + 1) == '0') {
+            international = true;
+            i += 2;
+        }
+
+        long value = 0;
+        int count = 0;
+        if (!international && countryPrefixLength > 0) {
+            value = countryPrefix;
+            count = countryPrefixLength;
+            if (i < n && number.charAt(i) == '0') {
+                i++;
+            }
+        }
+
+        for (; i < n; i++) {
+            char c = number.charAt(i);
+            if (c == '@' || c == ';') {
+                break; // Parte de host/parâmetros de URIs SIP
+            }
+            if (isDigit(c)) {
+                if (count == MAX_DIGITS) {
+                    return INVALID;
+                }
+                value = (value << 4) | (c - '0');
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return INVALID;
+        }
+        return ((long) count << 60) | (value << (4 * (MAX_DIGITS - count)));
+    }
+
+    // Comprimento armazenado no nibble superior
+    static int length(long packed) {
+        return (int) (packed >>> 60);
+    }
+
+    // Quantidade de dígitos iniciais em comum
+    static int sharedPrefix(long a, long b) {
+        int max = Math.min(length(a), length(b));
+        long diff = (a ^ b) & DIGITS_MASK;
+        if (diff == 0) {
+            return max;
+        }
+        return Math.min(max, (Long.numberOfLeadingZeros(diff) - 4) / 4);
+    }
+
+    // Converte dígitos BCD alinhados à direita em inteiro
+    private static int bcdToInt(long bcd, int digits) {
+        int result = 0;
+        for (int i = digits - 1; i >= 0; i--) {
+            result = result * 10 + (int) ((bcd >>> (4 * i)) & 0xF);
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Recarrega números próprios e, com o detector ativo, números confiáveis (agenda e histórico).
+    // O código de país é carregado mesmo desativado: o NumberValidator também o usa.
+    private void reload() {
+        try {
+            boolean activate = enabled;
+            int minShared = preferences.getInt(KEY_MIN_SHARED_DIGITS, DEFAULT_MIN_SHARED_DIGITS);
+
+            Set<String> rawOwnNumbers = new HashSet<>(preferences.getStringSet(KEY_OWN_NUMBERS, new HashSet<>()));
+            rawOwnNumbers.addAll(readSimNumbers());
+
+            // O código de país vem do primeiro número próprio em formato internacional
+            String countryDigits = null;
+            for (String own : rawOwnNumbers) {
+                if (own.startsWith("+")) {
+                    String digits = own.replaceAll("[^\\d]", "");
+                    countryDigits = digits.substring(0, Math.min(digits.length(), NumberingPlan.countryCodeLength(digits)));
+                    break;
+                }
+            }
+            // Sem número internacional: usar o país do SIM ou da rede
+            if (countryDigits == null) {
+                int code = callingCodeOf(readCountryIso());
+                if (code > 0) {
+                    countryDigits = Integer.toString(code);
+                } else if (!rawOwnNumbers.isEmpty()) {
+                    Log.w(TAG, "Código de país desconhecido: chamadas em formato internacional não serão comparadas");
+                }
+            }
+            long prefix = 0;
+            int prefixLength = countryDigits != null ? countryDigits.length() : 0;
+            for (int i = 0; i < prefixLength; i++) {
+                prefix = (prefix << 4) | (countryDigits.charAt(i) - '0');
+            }
+
+            long[] own = packAll(rawOwnNumbers, prefix, prefixLength);
+            long[] packedTrusted = new long[0];
+            if (activate) {
+                packedTrusted = packAll(readTrustedNumbers(), prefix, prefixLength);
+                Arrays.sort(packedTrusted);
+            }
+            int code = bcdToInt(prefix, prefixLength);
+
+            // A primeira carga reproduz o estado em que o cache restaurado foi gerado. Depois,
+            // as decisões só mudam com o código de país (usado também na validação) ou, com o
+            // detector ativo antes ou agora, com a configuração e os números
+            boolean changed = loaded && (code != countryCode || (activate || active) && (activate != active
+                    || minShared != minSharedDigits
+                    || !Arrays.equals(own, ownNumbers)
+                    || !Arrays.equals(packedTrusted, trustedNumbers)));
+            loaded = true;
+
+            minSharedDigits = minShared;
+            countryPrefix = prefix;
+            countryPrefixLength = prefixLength;
+            countryCode = code;
+            ownNumbers = own;
+            trustedNumbers = packedTrusted;
+            active = activate;
+            updateTrustedObservers(activate);
+            if (changed) {
+                invalidateDecisions();
+            }
+            Log.d(TAG, "Números próprios: " + own.length + ", confiáveis: " + packedTrusted.length);
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao carregar dados do detector de spoofing", e);
+        }
+    }
+
+    // Relê apenas os números confiáveis, com o código de país atual
+    private void reloadTrusted() {
+        if (!active) {
+            return;
+        }
+        try {
+            long[] packedTrusted = packAll(readTrustedNumbers(), countryPrefix, countryPrefixLength);
+            Arrays.sort(packedTrusted);
+            if (Arrays.equals(packedTrusted, trustedNumbers)) {
+                return;
+            }
+            trustedNumbers = packedTrusted;
+            invalidateDecisions();
+            Log.d(TAG, "Números confiáveis atualizados: " + packedTrusted.length);
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao atualizar números confiáveis", e);
+        }
+    }
+
+    // O detector é um estágio da triagem e do pipeline VoIP: descartar as decisões em memória.
+    // O snapshot persistido do cache VoIP é mantido, já que estes dados são relidos a cada início.
+    private void invalidateDecisions() {
+        AccountPolicies.INSTANCE.invalidateDecisions();
+        VoipCallBlocker.INSTANCE.evictCache();
+    }
+
+    private static long[] packAll(Set<String> numbers, long prefix, int prefixLength) {
+        long[] packed = new long[numbers.size()];
+        int count = 0;
+        for (String number : numbers) {
+            long value = pack(number, prefix, prefixLength);
+            if (value != INVALID) {
+                packed[count++] = value;
+            }
+        }
+        return Arrays.copyOf(packed, count);
+    }
+
+    // Números do SIM e das PhoneAccounts (requer READ_PHONE_STATE)
+    private Set<String> readSimNumbers() {
+        Set<String> numbers = new HashSet<>();
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_PHONE_STATE) != PackageManager.PERMISSION_GRANTED) {
+            return numbers;
+        }
+
+        try {
+            TelecomManager telecomManager = (TelecomManager) context.getSystemService(Context.TELECOM_SERVICE);
+            List<PhoneAccountHandle> handles = telecomManager.getCallCapablePhoneAccounts();
+            for (PhoneAccountHandle handle : handles) {
+                PhoneAccount account = telecomManager.getPhoneAccount(handle);
+                Uri address = (account != null) ? account.getAddress() : null;
+                if (address != null && address.getSchemeSpecificPart() != null) {
+                    numbers.add(address.getSchemeSpecificPart());
+                }
+            }
+
+            TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
+            String line1 = telephonyManager.getLine1Number();
+            if (line1 != null) {
+                numbers.add(line1);
+            }
+        } catch (SecurityException e) {
+            Log.w(TAG, "Sem permissão para ler o número do SIM", e);
+        }
+
+        numbers.remove("");
+        return numbers;
+    }
+
+    // País do SIM ou, sem SIM, da rede atual (ISO 3166, minúsculas), ou null
+    private String readCountryIso() {
+        TelephonyManager telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
+        if (telephonyManager == null) {
+            return null;
+        }
+        String iso = telephonyManager.getSimCountryIso();
+        if (iso == null || iso.isEmpty()) {
+            iso = telephonyManager.getNetworkCountryIso();
+        }
+        return iso == null || iso.isEmpty() ? null : iso.toLowerCase(Locale.ROOT);
+    }
+
+    // Código de chamada dos países com plano de numeração empacotado (assets/numbering), ou 0
+    static int callingCodeOf(String countryIso) {
+        if (countryIso == null) {
+            return 0;
+        }
+        switch (countryIso) {
+            case "br":
+                return 55;
+            case "us":
+            case "ca":
+            case "pr":
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    // Números da agenda e do histórico recente de chamadas atendidas/realizadas
+    private Set<String> readTrustedNumbers() {
+        Set<String> numbers = new HashSet<>();
+
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CALL_LOG) == PackageManager.PERMISSION_GRANTED) {
+            String selection = CallLog.Calls.TYPE + " IN (" + CallLog.Calls.INCOMING_TYPE + "," + CallLog.Calls.OUTGOING_TYPE + ")";
+            try (Cursor cursor = context.getContentResolver().query(CallLog.Calls.CONTENT_URI,
+                    new String[] { CallLog.Calls.NUMBER }, selection, null, CallLog.Calls.DATE + " DESC")) {
+                while (cursor != null && cursor.moveToNext() && numbers.size() < TRUSTED_HISTORY_LIMIT) {
+                    numbers.add(cursor.getString(0));
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Erro ao ler histórico de chamadas", e);
+            }
+        }
+
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED) {
+            try (Cursor cursor = context.getContentResolver().query(ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+                    new String[] { ContactsContract.CommonDataKinds.Phone.NUMBER }, null, null, null)) {
+                while (cursor != null && cursor.moveToNext()) {
+                    numbers.add(cursor.getString(0));
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Erro ao ler contatos", e);
+            }
+        }
+
+        numbers.remove(null);
+        return numbers;
+    }
+}
@@ -0,0 +1,225 @@
+package com.bruno.callshield;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Validador nativo de números de telefone.
+ *
+ * Usa os planos de numeração compactos em assets/numbering/&lt;código&gt;.npl, carregados
+ * sob demanda (mapeados em memória) apenas para os países que aparecem nas chamadas.
+ * Os resultados ficam num pequeno cache de mapeamento direto indexado pelo número empacotado.
+ */
+public class NumberValidator {
+    private static final String TAG = "NumberValidator";
+    private static final String ASSET_DIR = "numbering";
+    private static final String TABLE_EXTENSION = ".npl";
+
+    // Resultados de validação
+    public static final int RESULT_VALID = NumberingPlan.RESULT_VALID;
+    public static final int RESULT_INVALID = NumberingPlan.RESULT_INVALID;
+    public static final int RESULT_ANONYMOUS = 3;
+    public static final int RESULT_UNKNOWN_REGION = 4; // Sem plano para o país: não é possível afirmar
+
+    private static final int MAX_DIGITS = 15;
+    private static final int CACHE_SIZE = 256; // Potência de 2
+    private static final int RESULT_SHIFT = 56;
+    private static final long KEY_MASK = (1L << RESULT_SHIFT) - 1;
+
+    // Singleton instance
+    public static final NumberValidator INSTANCE = new NumberValidator();
+
+    // Marcador de país sem tabela
+    private static final Object MISSING = new Object();
+
+    private Context context;
+
+    // Planos carregados por código de país (null = ainda não procurado)
+    private final Object[] plans = new Object[1000];
+
+    // Cache de resultados: chave empacotada com o resultado nos bits superiores.
+    // Cada posição é um único long, escrito apenas pela thread de triagem.
+    private final long[] resultCache = new long[CACHE_SIZE];
+
+    private NumberValidator() {
+    }
+
+    // Método para inicializar o contexto
+    public void initialize(Context appContext) {
+        if (this.context == null) {
+            this.context = appContext.getApplicationContext();
+        }
+    }
+
+    /**
+     * Valida um número
+     * @param number Número como recebido (com ou sem +, com separadores)
+     * @param defaultCountryCode Código do país para números em formato nacional (0 = desconhecido)
+     * @return RESULT_VALID, RESULT_INVALID, RESULT_ANONYMOUS ou RESULT_UNKNOWN_REGION
+     */
+    public int validate(String number, int defaultCountryCode) {
+        if (number == null) {
+            return RESULT_ANONYMOUS;
+        }
+
+        // Extrair os dígitos sem criar strings
+        int n = number.length();
+        int i = 0;
+        boolean international = false;
+        while (i < n && (number.charAt(i) < '0' || number.charAt(i) > '9')) {
+            international |= number.charAt(i) == '+';
+            i++;
+        }
+        if (!international && i + 1 < n && number.charAt(i) == '0' && number.charAt(i + 1) == '0') {
+            international = true;
+            i += 2;
+        } else if (!international && i < n && number.charAt(i) == '0') {
+            i++; // Zero de tronco
+        }
+
+        long value = 0;
+        int count = 0;
+        for (; i < n; i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (count == MAX_DIGITS) {
+                    return RESULT_INVALID;
+                }
+                value = value * 10 + (c - '0');
+                count++;
+            }
+        }
+        if (count == 0) {
+            return RESULT_ANONYMOUS;
+        }
+        if (!international) {
+            if (defaultCountryCode <= 0 || defaultCountryCode > 999) {
+                return RESULT_UNKNOWN_REGION;
+            }
+            // Converter para E.164 prefixando o código do país
+            int ccDigits = defaultCountryCode >= 100 ? 3 : defaultCountryCode >= 10 ? 2 : 1;
+            if (count + ccDigits > MAX_DIGITS) {
+                return RESULT_INVALID;
+            }
+            value += defaultCountryCode * pow10(count);
+            count += ccDigits;
+        }
+
+        long key = ((long) count << 50) | value;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 56) & (CACHE_SIZE - 1);
+        long cached = resultCache[slot];
+        if (cached != 0 && (cached & KEY_MASK) == key) {
+            return (int) (cached >>> RESULT_SHIFT);
+        }
+
+        int result = validateE164(value, count);
+        resultCache[slot] = key | ((long) result << RESULT_SHIFT);
+        return result;
+    }
+
+    // Número E.164 completo: separar o código do país pelos primeiros dígitos
+    private int validateE164(long value, int count) {
+        int firstDigit = (int) (value / pow10(count - 1));
+        int firstTwoDigits = count >= 2 ? (int) (value / pow10(count - 2)) : -1;
+        int ccLength = NumberingPlan.countryCodeLength(firstDigit, firstTwoDigits);
+        if (ccLength >= count) {
+            return RESULT_INVALID;
+        }
+
+        long divisor = pow10(count - ccLength);
+        return validateNational((int) (value / divisor), value % divisor, count - ccLength);
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int k = 0; k < exponent; k++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    private int validateNational(int countryCode, long national, int length) {
+        NumberingPlan plan = planFor(countryCode);
+        return plan == null ? RESULT_UNKNOWN_REGION : plan.validate(national, length);
+    }
+
+    // Carrega o plano do país na primeira vez que ele aparece
+    private NumberingPlan planFor(int countryCode) {
+        if (countryCode <= 0 || countryCode >= plans.length || context == null) {
+            return null;
+        }
+
+        Object plan = plans[countryCode];
+        if (plan == null) {
+            synchronized (plans) {
+                plan = plans[countryCode];
+                if (plan == null) {
+                    plan = loadPlan(countryCode);
+                    plans[countryCode] = plan;
+                }
+            }
+        }
+        return plan == MISSING ? null : (NumberingPlan) plan;
+    }
+
+    private Object loadPlan(int countryCode) {
+        String asset = ASSET_DIR + "/" + countryCode + TABLE_EXTENSION;
+        try {
+            NumberingPlan plan = NumberingPlan.open(mapAsset(asset));
+            Log.d(TAG, "Plano de numeração carregado: +" + countryCode);
+            return plan;
+        } catch (FileNotFoundException e) {
+            return MISSING;
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao carregar plano de numeração +" + countryCode, e);
+            return MISSING;
+        }
+    }
+
+    // Mapeia o asset em memória; assets comprimidos são copiados uma vez para o armazenamento do app
+    private ByteBuffer mapAsset(String asset) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(asset);
+             FileInputStream in = descriptor.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getDeclaredLength());
+        } catch (FileNotFoundException e) {
+            // openFd falha para assets comprimidos; distinguir de asset inexistente abaixo
+        }
+
+        File file = new File(context.getNoBackupFilesDir(), asset);
+        if (!file.exists()) {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Não foi possível criar " + parent);
+            }
+            File temp = new File(file.getPath() + ".tmp");
+            try (InputStream in = context.getAssets().open(asset);
+                 OutputStream out = new FileOutputStream(temp)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Não foi possível salvar " + file);
+            }
+        }
+
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
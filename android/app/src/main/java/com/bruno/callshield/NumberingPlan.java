@@ -0,0 +1,255 @@
+package com.bruno.callshield;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plano de numeração compacto de um país: uma trie de prefixos do número nacional
+ * em que cada nó pode definir a faixa de comprimentos válidos.
+ *
+ * Formato binário (big-endian):
+ *   int    MAGIC ("NPL1")
+ *   short  código do país
+ *   short  quantidade de nós (o nó 0 é a raiz)
+ *   nós:   byte minLen, byte maxLen (0 = sem regra), short filho[10] (0 = sem filho)
+ *
+ * A regra do nó mais profundo alcançado pelos primeiros dígitos vale para o número.
+ * Números cujo início não tem regra são inválidos.
+ */
+public final class NumberingPlan {
+    public static final int MAGIC = 0x4E504C31; // "NPL1"
+    private static final int HEADER_SIZE = 8;
+    private static final int NODE_SIZE = 22;
+
+    // Resultados de validação
+    public static final int RESULT_VALID = 1;
+    public static final int RESULT_INVALID = 2;
+
+    // Códigos de país com 2 dígitos (1 e 7 têm um dígito; os demais têm 3)
+    private static final int[] TWO_DIGIT_COUNTRY_CODES = {
+        20, 27, 30, 31, 32, 33, 34, 36, 39, 40, 41, 43, 44, 45, 46, 47, 48, 49,
+        51, 52, 53, 54, 55, 56, 57, 58, 60, 61, 62, 63, 64, 65, 66, 81, 82, 84, 86,
+        90, 91, 92, 93, 94, 95, 98
+    };
+
+    private final ByteBuffer table;
+    private final int countryCode;
+
+    private NumberingPlan(ByteBuffer table) {
+        this.table = table;
+        this.countryCode = table.getShort(4);
+    }
+
+    /**
+     * Abre uma tabela binária (normalmente um arquivo mapeado em memória)
+     * @throws IOException se o cabeçalho for inválido
+     */
+    public static NumberingPlan open(ByteBuffer buffer) throws IOException {
+        ByteBuffer table = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (table.capacity() < HEADER_SIZE || table.getInt(0) != MAGIC) {
+            throw new IOException("Tabela de numeração inválida");
+        }
+        int nodes = table.getShort(6) & 0xFFFF;
+        if (table.capacity() < HEADER_SIZE + nodes * NODE_SIZE) {
+            throw new IOException("Tabela de numeração truncada");
+        }
+        return new NumberingPlan(table);
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    /**
+     * Valida um número nacional (dígitos após o código do país)
+     * @param digits Dígitos do número nacional, como valor decimal
+     * @param length Quantidade de dígitos
+     * @return RESULT_VALID ou RESULT_INVALID
+     */
+    public int validate(long digits, int length) {
+        int node = 0;
+        int minLen = 0;
+        int maxLen = 0;
+        long divisor = pow10(length - 1);
+
+        for (int i = 0; i <= length; i++) {
+            int offset = HEADER_SIZE + node * NODE_SIZE;
+            int nodeMax = table.get(offset + 1) & 0xFF;
+            if (nodeMax != 0) {
+                minLen = table.get(offset) & 0xFF;
+                maxLen = nodeMax;
+            }
+            if (i == length) {
+                break;
+            }
+
+            int digit = (int) ((digits / divisor) % 10);
+            divisor /= 10;
+            int child = table.getShort(offset + 2 + digit * 2) & 0xFFFF;
+            if (child == 0) {
+                break;
+            }
+            node = child;
+        }
+
+        return (maxLen != 0 && length >= minLen && length <= maxLen) ? RESULT_VALID : RESULT_INVALID;
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    // Comprimento do código de país de um número E.164 (somente dígitos)
+    static int countryCodeLength(CharSequence e164Digits) {
+        if (e164Digits.length() == 0) {
+            return 0;
+        }
+        int first = e164Digits.charAt(0) - '0';
+        int firstTwo = e164Digits.length() >= 2 ? first * 10 + (e164Digits.charAt(1) - '0') : -1;
+        return countryCodeLength(first, firstTwo);
+    }
+
+    /**
+     * Comprimento do código de país a partir dos primeiros dígitos
+     * @param firstDigit Primeiro dígito
+     * @param firstTwoDigits Dois primeiros dígitos como número, ou -1 se houver apenas um
+     */
+    static int countryCodeLength(int firstDigit, int firstTwoDigits) {
+        if (firstDigit == 1 || firstDigit == 7) {
+            return 1;
+        }
+        if (firstTwoDigits >= 0 && Arrays.binarySearch(TWO_DIGIT_COUNTRY_CODES, firstTwoDigits) >= 0) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Compila a fonte textual de um plano para o formato binário.
+     * Linhas: "prefixo minLen maxLen" (comprimentos do número nacional); '#' inicia comentário.
+     * A primeira linha útil deve ser "country <código>".
+     * Linhas "valid <número nacional>" e "invalid <número nacional>" são casos de teste,
+     * conferidos na tabela gerada: a compilação falha se algum não se confirmar.
+     */
+    public static byte[] compile(String source) throws IOException {
+        int code = -1;
+        List<int[]> nodes = new ArrayList<>();
+        nodes.add(newNode());
+        List<String> checks = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new StringReader(source))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String content = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (content.isEmpty()) {
+                    continue;
+                }
+
+                String[] parts = content.split("\\s+");
+                if (parts[0].equals("country") && parts.length == 2) {
+                    code = Integer.parseInt(parts[1]);
+                    continue;
+                }
+                if ((parts[0].equals("valid") || parts[0].equals("invalid")) && parts.length == 2) {
+                    if (!parts[1].matches("\\d{1,17}")) {
+                        throw new IOException("Linha " + lineNumber + " inválida: " + line);
+                    }
+                    checks.add(lineNumber + " " + parts[0] + " " + parts[1]);
+                    continue;
+                }
+                if (parts.length != 3 || !parts[0].matches("\\d*|\\*")) {
+                    throw new IOException("Linha " + lineNumber + " inválida: " + line);
+                }
+
+                int minLen = Integer.parseInt(parts[1]);
+                int maxLen = Integer.parseInt(parts[2]);
+                if (minLen < 1 || maxLen < minLen || maxLen > 17) {
+                    throw new IOException("Linha " + lineNumber + ": comprimentos inválidos");
+                }
+
+                // "*" define a regra da raiz
+                String prefix = parts[0].equals("*") ? "" : parts[0];
+                int node = 0;
+                for (int i = 0; i < prefix.length(); i++) {
+                    int digit = prefix.charAt(i) - '0';
+                    if (nodes.get(node)[2 + digit] == 0) {
+                        nodes.add(newNode());
+                        nodes.get(node)[2 + digit] = nodes.size() - 1;
+                    }
+                    node = nodes.get(node)[2 + digit];
+                }
+                nodes.get(node)[0] = minLen;
+                nodes.get(node)[1] = maxLen;
+            }
+        }
+
+        if (code < 1 || code > 999) {
+            throw new IOException("Código do país ausente");
+        }
+        if (nodes.size() > 0xFFFF) {
+            throw new IOException("Plano grande demais");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + nodes.size() * NODE_SIZE).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) code);
+        buffer.putShort((short) nodes.size());
+        for (int[] node : nodes) {
+            buffer.put((byte) node[0]);
+            buffer.put((byte) node[1]);
+            for (int i = 0; i < 10; i++) {
+                buffer.putShort((short) node[2 + i]);
+            }
+        }
+
+        // Casos de teste da fonte
+        NumberingPlan plan = open(ByteBuffer.wrap(buffer.array()));
+        for (String check : checks) {
+            String[] parts = check.split(" ");
+            boolean expectValid = parts[1].equals("valid");
+            int result = plan.validate(Long.parseLong(parts[2]), parts[2].length());
+            if ((result == RESULT_VALID) != expectValid) {
+                throw new IOException("Linha " + parts[0] + ": " + parts[2] + " deveria ser "
+                        + (expectValid ? "válido" : "inválido"));
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Gera as tabelas dos assets a partir das fontes, conferindo os casos de teste de cada uma:
+     * NumberingPlan &lt;fonte.txt&gt; &lt;saída.npl&gt; [&lt;fonte.txt&gt; &lt;saída.npl&gt;...]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 != 0) {
+            System.err.println("Uso: NumberingPlan <fonte.txt> <saída.npl> [<fonte.txt> <saída.npl>...]");
+            System.exit(2);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            byte[] table = compile(new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8));
+            Files.write(Paths.get(args[i + 1]), table);
+            System.out.println(args[i] + " -> " + args[i + 1] + " (" + table.length + " bytes)");
+        }
+    }
+
+    // Nó em construção: minLen, maxLen, filhos 0-9
+    private static int[] newNode() {
+        return new int[12];
+    }
+}
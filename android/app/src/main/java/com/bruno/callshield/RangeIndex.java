@@ -0,0 +1,240 @@
+package com.bruno.callshield;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Índice imutável de faixas numéricas (ex.: +55 11 4000-0000 a +55 11 4000-9999).
+ *
+ * As faixas ficam em dois arrays primitivos ordenados (início/fim), já mescladas
+ * e sem sobreposição; a busca é uma pesquisa binária O(log n) sem alocação.
+ * Cada número é convertido numa chave que inclui a quantidade de dígitos, para que
+ * números de comprimentos diferentes nunca caiam na mesma faixa.
+ */
+public final class RangeIndex {
+    // Valor de número inválido
+    public static final long INVALID = -1L;
+
+    private static final int MAX_DIGITS = 15;
+    private static final int LENGTH_SHIFT = 50; // 10^15 < 2^50
+
+    public static final RangeIndex EMPTY = new RangeIndex(new long[0], new long[0]);
+
+    private final long[] starts;
+    private final long[] ends;
+
+    private RangeIndex(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Chave numérica de um número: dígitos em decimal com o comprimento nos bits superiores
+     * @return a chave ou INVALID
+     */
+    public static long key(CharSequence number) {
+        if (number == null) {
+            return INVALID;
+        }
+
+        long value = 0;
+        int count = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c == '@' || c == ';') {
+                break; // Parte de host/parâmetros de URIs SIP
+            }
+            if (c >= '0' && c <= '9') {
+                if (count == MAX_DIGITS) {
+                    return INVALID;
+                }
+                value = value * 10 + (c - '0');
+                count++;
+            }
+        }
+        return count == 0 ? INVALID : ((long) count << LENGTH_SHIFT) | value;
+    }
+
+    /**
+     * Interpreta o valor de uma entrada do tipo "range": "início..fim" ou uma
+     * máscara com X finais (ex.: "+55 11 4000-XXXX")
+     * @return {início, fim} em chaves numéricas, ou null se o valor for inválido
+     */
+    public static long[] parseRange(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        long start;
+        long end;
+        int separator = value.indexOf("..");
+        if (separator >= 0) {
+            start = key(value.substring(0, separator));
+            end = key(value.substring(separator + 2));
+        } else {
+            String trimmed = value.trim();
+            int wildcards = 0;
+            while (wildcards < trimmed.length()) {
+                char c = trimmed.charAt(trimmed.length() - 1 - wildcards);
+                if (c != 'X' && c != 'x' && c != '-' && c != ' ') {
+                    break;
+                }
+                wildcards++;
+            }
+            String masked = trimmed.substring(trimmed.length() - wildcards);
+            if (masked.indexOf('X') < 0 && masked.indexOf('x') < 0) {
+                return null;
+            }
+            String fixed = trimmed.substring(0, trimmed.length() - wildcards);
+            start = key(fixed + masked.replaceAll("[Xx]", "0"));
+            end = key(fixed + masked.replaceAll("[Xx]", "9"));
+        }
+
+        // Início e fim devem ter o mesmo número de dígitos
+        if (start == INVALID || end == INVALID || (start >>> LENGTH_SHIFT) != (end >>> LENGTH_SHIFT) || start > end) {
+            return null;
+        }
+        return new long[] { start, end };
+    }
+
+    /**
+     * Acumula faixas em arrays primitivos para construir o índice
+     */
+    public static final class Builder {
+        private long[] starts = new long[16];
+        private long[] ends = new long[16];
+        private int count;
+
+        public Builder add(long start, long end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        public RangeIndex build() {
+            return RangeIndex.build(starts, ends, count);
+        }
+    }
+
+    /**
+     * Constrói o índice a partir de faixas arbitrárias, mesclando sobreposições e faixas adjacentes
+     * @param starts Inícios (ao menos count posições; o array é reordenado)
+     * @param ends Fins correspondentes (ao menos count posições; o array é reordenado)
+     * @param count Quantidade de faixas
+     */
+    public static RangeIndex build(long[] starts, long[] ends, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        // A união de intervalos só depende dos multiconjuntos de inícios e fins,
+        // então os dois arrays podem ser ordenados de forma independente
+        Arrays.sort(starts, 0, count);
+        Arrays.sort(ends, 0, count);
+        return buildSorted(starts, ends, count);
+    }
+
+    /**
+     * Como build, para inícios e fins já ordenados (cada array de forma independente)
+     */
+    public static RangeIndex buildSorted(long[] starts, long[] ends, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        long[] mergedStarts = new long[count];
+        long[] mergedEnds = new long[count];
+        int merged = 0;
+        int i = 0;
+        int j = 0;
+        int depth = 0;
+        long currentStart = 0;
+        while (j < count) {
+            // Um início adjacente ao fim atual (fim + 1) continua a mesma faixa
+            if (i < count && starts[i] <= ends[j] + 1) {
+                if (depth == 0) {
+                    currentStart = starts[i];
+                }
+                depth++;
+                i++;
+            } else {
+                depth--;
+                if (depth == 0) {
+                    mergedStarts[merged] = currentStart;
+                    mergedEnds[merged] = ends[j];
+                    merged++;
+                }
+                j++;
+            }
+        }
+
+        return new RangeIndex(Arrays.copyOf(mergedStarts, merged), Arrays.copyOf(mergedEnds, merged));
+    }
+
+    /**
+     * Verifica se a chave está em alguma faixa
+     */
+    public boolean contains(long key) {
+        if (key == INVALID || starts.length == 0) {
+            return false;
+        }
+        // Última faixa cujo início é <= key
+        int index = Arrays.binarySearch(starts, key);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index >= 0 && ends[index] >= key;
+    }
+
+    // Quantidade de faixas após a mescla
+    public int size() {
+        return starts.length;
+    }
+
+    // Faixa na posição indicada como "início..fim" (formato aceito por parseRange)
+    public String formatRange(int index) {
+        return format(starts[index]) + ".." + format(ends[index]);
+    }
+
+    private static String format(long key) {
+        int count = (int) (key >>> LENGTH_SHIFT);
+        String digits = Long.toString(key & ((1L << LENGTH_SHIFT) - 1));
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = digits.length(); i < count; i++) {
+            builder.append('0');
+        }
+        return builder.append(digits).toString();
+    }
+
+    // Serialização compacta: quantidade seguida dos pares início/fim
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            out.writeLong(starts[i]);
+            out.writeLong(ends[i]);
+        }
+    }
+
+    public static RangeIndex readFrom(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = in.readLong();
+            ends[i] = in.readLong();
+        }
+        // O arquivo já contém faixas mescladas e ordenadas
+        return new RangeIndex(starts, ends);
+    }
+}
@@ -0,0 +1,137 @@
+package com.bruno.callshield;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pipeline de regras de triagem com ordenação adaptativa.
+ *
+ * Cada estágio pertence a um nível de precedência (tier). Estágios de tiers
+ * menores sempre rodam antes (ex.: lista de permissões antes de qualquer
+ * bloqueio); dentro do mesmo tier os estágios são independentes e são
+ * reordenados periodicamente pelo custo esperado por decisão (custo / taxa de acerto).
+ */
+public class RulePipeline {
+    // Resultados possíveis de um estágio
+    public static final int VERDICT_NONE = 0;
+    public static final int VERDICT_ALLOW = 1;
+    public static final int VERDICT_BLOCK = 2;
+
+    // Reordenar a cada N avaliações
+    private static final int REORDER_INTERVAL = 256;
+
+    // Medir o tempo apenas em 1 de cada N avaliações (máscara de bits)
+    private static final int TIMING_SAMPLE_MASK = 15;
+
+    /**
+     * Estágio do pipeline. Implementações devem ser baratas e sem efeitos colaterais.
+     */
+    public abstract static class Stage {
+        final String name;
+        final int tier;
+
+        // Estatísticas online (aproximadas; escritas apenas pela thread de triagem)
+        long evaluations;
+        long hits;
+        long sampledEvaluations;
+        long sampledNanos;
+
+        protected Stage(String name, int tier) {
+            this.name = name;
+            this.tier = tier;
+        }
+
+        /**
+         * Avalia a chamada
+         * @param normalizedNumber Número normalizado (somente dígitos e +)
+         * @param rawNumber Número como recebido
+         * @param scheme Esquema da chamada (tel, sip, voip)
+         * @return VERDICT_NONE, VERDICT_ALLOW ou VERDICT_BLOCK
+         */
+        protected abstract int evaluate(String normalizedNumber, String rawNumber, String scheme);
+
+        // Custo médio estimado em nanossegundos
+        double averageCostNanos() {
+            return sampledEvaluations == 0 ? 1.0 : (double) sampledNanos / sampledEvaluations;
+        }
+
+        // Taxa de acerto com suavização de Laplace para estágios ainda sem histórico
+        double hitRate() {
+            return (hits + 1.0) / (evaluations + 2.0);
+        }
+
+        // Custo esperado para chegar a uma decisão através deste estágio
+        double rank() {
+            return averageCostNanos() / hitRate();
+        }
+    }
+
+    // Ordem atual, publicada atomicamente para leitura sem lock
+    private volatile Stage[] order;
+
+    // Contador de avaliações (a triagem roda numa única thread)
+    private long evaluationCount;
+
+    public RulePipeline(List<Stage> stages) {
+        Stage[] initial = stages.toArray(new Stage[0]);
+        // Ordenação estável: preserva a ordem de declaração dentro de cada tier
+        Arrays.sort(initial, (a, b) -> Integer.compare(a.tier, b.tier));
+        this.order = initial;
+    }
+
+    /**
+     * Avalia os estágios na ordem atual e retorna o primeiro veredito decisivo
+     */
+    public int evaluate(String normalizedNumber, String rawNumber, String scheme) {
+        Stage[] stages = order;
+        long count = ++evaluationCount;
+        boolean timed = (count & TIMING_SAMPLE_MASK) == 0;
+
+        int verdict = VERDICT_NONE;
+        for (Stage stage : stages) {
+            long start = timed ? System.nanoTime() : 0;
+            verdict = stage.evaluate(normalizedNumber, rawNumber, scheme);
+            if (timed) {
+                stage.sampledNanos += System.nanoTime() - start;
+                stage.sampledEvaluations++;
+            }
+            stage.evaluations++;
+            if (verdict != VERDICT_NONE) {
+                stage.hits++;
+                break;
+            }
+        }
+
+        if (count % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+        return verdict;
+    }
+
+    // Reordena os estágios dentro de cada tier pelo custo esperado por decisão
+    void reorder() {
+        Stage[] next = order.clone();
+        Arrays.sort(next, (a, b) -> {
+            if (a.tier != b.tier) {
+                return Integer.compare(a.tier, b.tier);
+            }
+            return Double.compare(a.rank(), b.rank());
+        });
+        order = next;
+    }
+
+    /**
+     * Ordem atual dos estágios com estatísticas, para depuração
+     */
+    public List<String> describeOrder() {
+        List<String> description = new ArrayList<>();
+        for (Stage stage : order) {
+            description.add(String.format(Locale.ROOT,
+                    "%s tier=%d avaliações=%d acertos=%d custo=%.0fns",
+                    stage.name, stage.tier, stage.evaluations, stage.hits, stage.averageCostNanos()));
+        }
+        return description;
+    }
+}
@@ -0,0 +1,56 @@
+package com.bruno.callshield;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Lado do processo da interface da comunicação com o processo de triagem.
+ *
+ * Cada comando é um broadcast ordenado explícito para o ScreeningCommandReceiver, que inicia
+ * o processo de triagem se necessário; a resposta chega no resultado do broadcast, na thread
+ * principal. Nenhuma classe do motor de triagem é usada neste processo.
+ */
+final class ScreeningClient {
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Resposta de um comando (chamada na thread principal)
+     */
+    interface Callback {
+        void onResult(Bundle result);
+
+        void onError(String message);
+    }
+
+    private ScreeningClient() {
+    }
+
+    /**
+     * Envia um comando ao processo de triagem
+     * @param action Comando (ScreeningCommandReceiver.ACTION_*)
+     * @param args Argumentos (apenas valores pequenos; listas vão por BulkTransfer)
+     */
+    static void send(Context context, String action, Bundle args, Callback callback) {
+        Intent intent = new Intent(context, ScreeningCommandReceiver.class).setAction(action);
+        if (args != null) {
+            intent.putExtras(args);
+        }
+
+        context.sendOrderedBroadcast(intent, null, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, Intent resultIntent) {
+                if (getResultCode() == Activity.RESULT_OK) {
+                    callback.onResult(getResultExtras(true));
+                } else {
+                    String message = getResultData();
+                    callback.onError(message != null ? message : "O processo de triagem não respondeu");
+                }
+            }
+        }, mainHandler, Activity.RESULT_CANCELED, null, null);
+    }
+}
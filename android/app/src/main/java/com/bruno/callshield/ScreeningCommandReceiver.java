@@ -0,0 +1,197 @@
+package com.bruno.callshield;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Ponto de entrada do processo de triagem (":screening") para comandos do app.
+ *
+ * O serviço de triagem, as listas, os índices, o journal de sincronização e a manutenção
+ * vivem apenas neste processo, que é o único a gravar os seus arquivos de preferências.
+ * O processo da interface (WebView/Capacitor) envia alterações de configuração como
+ * broadcasts ordenados explícitos (ver ScreeningClient) e recebe a resposta no resultado
+ * do broadcast; listas grandes vão por arquivo (BulkTransfer), nunca pelo Intent.
+ * No sentido inverso, o processo de triagem publica apenas eventos (ACTION_CALL_SCREENED).
+ */
+public class ScreeningCommandReceiver extends BroadcastReceiver {
+    private static final String TAG = "ScreeningCommand";
+    private static final String PREFIX = "com.bruno.callshield.screening.";
+
+    // Comandos (ação do Intent)
+    static final String ACTION_SET_ACTIVE = PREFIX + "SET_ACTIVE";
+    static final String ACTION_UPDATE_SETTINGS = PREFIX + "UPDATE_SETTINGS";
+    static final String ACTION_APPLY_CUSTOM_LIST = PREFIX + "APPLY_CUSTOM_LIST";
+    static final String ACTION_EXPORT_CUSTOM_LIST = PREFIX + "EXPORT_CUSTOM_LIST";
+    static final String ACTION_CONFIGURE_NEIGHBOR_SPOOFING = PREFIX + "CONFIGURE_NEIGHBOR_SPOOFING";
+    static final String ACTION_CONFIGURE_SYNC = PREFIX + "CONFIGURE_SYNC";
+    static final String ACTION_SYNC_NOW = PREFIX + "SYNC_NOW";
+    static final String ACTION_INSTALL_SPAM_MODEL = PREFIX + "INSTALL_SPAM_MODEL";
+    static final String ACTION_GET_SCREENING_METRICS = PREFIX + "GET_SCREENING_METRICS";
+    static final String ACTION_GET_MAINTENANCE_STATS = PREFIX + "GET_MAINTENANCE_STATS";
+    static final String ACTION_GET_RULE_ORDER = PREFIX + "GET_RULE_ORDER";
+    static final String ACTION_GET_PHONE_ACCOUNTS = PREFIX + "GET_PHONE_ACCOUNTS";
+    static final String ACTION_SET_ACCOUNT_POLICY = PREFIX + "SET_ACCOUNT_POLICY";
+    static final String ACTION_REMOVE_ACCOUNT_POLICY = PREFIX + "REMOVE_ACCOUNT_POLICY";
+
+    // Evento publicado para o processo da interface a cada chamada triada
+    static final String ACTION_CALL_SCREENED = PREFIX + "CALL_SCREENED";
+
+    // Extras
+    static final String EXTRA_ACTIVE = "active";
+    static final String EXTRA_HANDLE = "handle";
+    static final String EXTRA_ENABLE = "enable";
+    static final String EXTRA_OWN_NUMBERS = "ownNumbers";
+    static final String EXTRA_MIN_SHARED_DIGITS = "minSharedDigits";
+    static final String EXTRA_URL = "url";
+    static final String EXTRA_DATA = "data";
+    static final String EXTRA_NUMBER = "number";
+    static final String EXTRA_BLOCKED = "blocked";
+    static final String EXTRA_REASON = "reason";
+    static final String EXTRA_ACCOUNT = "account";
+    static final String EXTRA_SETTINGS = "settings";
+    static final String EXTRA_ENTRY_TYPES = "entryTypes";
+    static final String EXTRA_ENTRY_BLOCKED = "entryBlocked";
+    static final String EXTRA_ENTRY_VALUES = "entryValues";
+
+    // Os comandos são aplicados um de cada vez, na ordem de chegada
+    private static final Executor commandExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        String action = intent.getAction();
+        Bundle extras = intent.getExtras() != null ? intent.getExtras() : new Bundle();
+        PendingResult pendingResult = goAsync();
+
+        commandExecutor.execute(() -> {
+            try {
+                Bundle result = handle(appContext, action, extras);
+                pendingResult.setResult(Activity.RESULT_OK, null, result);
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao executar " + action, e);
+                pendingResult.setResult(Activity.RESULT_CANCELED,
+                        e.getMessage() != null ? e.getMessage() : e.toString(), null);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    private static Bundle handle(Context context, String action, Bundle extras) throws Exception {
+        Bundle result = new Bundle();
+        if (ACTION_SET_ACTIVE.equals(action)) {
+            CallBlockerService.setServiceActive(context, extras.getBoolean(EXTRA_ACTIVE));
+        } else if (ACTION_UPDATE_SETTINGS.equals(action)) {
+            updateSettings(context, extras);
+        } else if (ACTION_APPLY_CUSTOM_LIST.equals(action)) {
+            String handle = extras.getString(EXTRA_HANDLE);
+            try {
+                // Leitura em fluxo: nenhuma representação intermediária da lista inteira
+                CustomListBuilder builder = new CustomListBuilder();
+                int count = BulkTransfer.read(BulkTransfer.file(context, handle), BulkTransfer.KIND_CUSTOM_LIST, builder);
+                builder.apply(context);
+                result.putInt("count", count);
+                result.putInt("rejected", builder.getRejected());
+            } finally {
+                BulkTransfer.release(context, handle);
+            }
+        } else if (ACTION_EXPORT_CUSTOM_LIST.equals(action)) {
+            File file = BulkTransfer.file(context, extras.getString(EXTRA_HANDLE));
+            try (BulkTransfer.Writer writer = new BulkTransfer.Writer(file, BulkTransfer.KIND_CUSTOM_LIST)) {
+                VoipCallBlocker.INSTANCE.initialize(context);
+                VoipCallBlocker.INSTANCE.exportCustomList(writer);
+                result.putInt("count", writer.getCount());
+            }
+            result.putString("path", file.getAbsolutePath());
+        } else if (ACTION_CONFIGURE_NEIGHBOR_SPOOFING.equals(action)) {
+            String[] ownNumbers = extras.getStringArray(EXTRA_OWN_NUMBERS);
+            NeighborSpoofDetector.INSTANCE.initialize(context);
+            NeighborSpoofDetector.INSTANCE.configure(extras.getBoolean(EXTRA_ENABLE),
+                    ownNumbers != null ? new HashSet<>(Arrays.asList(ownNumbers)) : null,
+                    extras.getInt(EXTRA_MIN_SHARED_DIGITS, 5));
+        } else if (ACTION_CONFIGURE_SYNC.equals(action)) {
+            VoipCallBlocker.INSTANCE.initialize(context);
+            SyncEngine.INSTANCE.initialize(context);
+            SyncEngine.INSTANCE.configure(extras.getString(EXTRA_URL));
+        } else if (ACTION_SYNC_NOW.equals(action)) {
+            // E/S de rede não roda na fila de comandos: o MaintenanceJobService sincroniza assim que houver rede
+            MaintenanceScheduler.get(context).expedite(MaintenanceScheduler.TASK_CLOUD_SYNC);
+        } else if (ACTION_INSTALL_SPAM_MODEL.equals(action)) {
+            SpamScorer.INSTANCE.initialize(context);
+            SpamScorer.INSTANCE.installModel(extras.getByteArray(EXTRA_DATA));
+            result.putLong("version", SpamScorer.INSTANCE.getModelVersion());
+        } else if (ACTION_GET_SCREENING_METRICS.equals(action)) {
+            putAll(result, ScreeningMetrics.snapshot());
+        } else if (ACTION_GET_MAINTENANCE_STATS.equals(action)) {
+            putAll(result, MaintenanceScheduler.get(context).getStats());
+        } else if (ACTION_GET_RULE_ORDER.equals(action)) {
+            VoipCallBlocker.INSTANCE.initialize(context);
+            result.putStringArrayList("order", new ArrayList<>(VoipCallBlocker.INSTANCE.getRuleOrder()));
+        } else if (ACTION_GET_PHONE_ACCOUNTS.equals(action)) {
+            AccountPolicies.INSTANCE.initialize(context);
+            AccountPolicies.INSTANCE.describeAccounts(result);
+        } else if (ACTION_SET_ACCOUNT_POLICY.equals(action)) {
+            AccountPolicies.INSTANCE.initialize(context);
+            result.putInt("rejected", AccountPolicies.INSTANCE.configure(extras.getString(EXTRA_ACCOUNT),
+                    extras.getBundle(EXTRA_SETTINGS), extras.getIntArray(EXTRA_ENTRY_TYPES),
+                    extras.getBooleanArray(EXTRA_ENTRY_BLOCKED), extras.getStringArray(EXTRA_ENTRY_VALUES)));
+        } else if (ACTION_REMOVE_ACCOUNT_POLICY.equals(action)) {
+            AccountPolicies.INSTANCE.initialize(context);
+            AccountPolicies.INSTANCE.remove(extras.getString(EXTRA_ACCOUNT));
+        } else {
+            throw new IllegalArgumentException("Comando desconhecido: " + action);
+        }
+        return result;
+    }
+
+    // Persiste as opções recebidas; o serviço em execução as aplica pelo listener de preferências
+    private static void updateSettings(Context context, Bundle settings) {
+        SharedPreferences servicePrefs = context.getSharedPreferences(CallBlockerService.PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = servicePrefs.edit();
+        SyncEngine.INSTANCE.initialize(context);
+        for (int i = 0; i < AccountPolicies.SETTING_KEYS.length; i++) {
+            String key = AccountPolicies.SETTING_KEYS[i];
+            if (!settings.containsKey(key)) {
+                continue;
+            }
+            boolean value = settings.getBoolean(key, AccountPolicies.SETTING_DEFAULTS[i]);
+            if (servicePrefs.getBoolean(key, AccountPolicies.SETTING_DEFAULTS[i]) != value) {
+                editor.putBoolean(key, value);
+                SyncEngine.INSTANCE.recordSetting(key, value);
+            }
+        }
+        editor.apply();
+    }
+
+    private static void putAll(Bundle bundle, Map<String, Long> values) {
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            bundle.putLong(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Publica o desfecho de uma chamada para o processo da interface, se ele estiver vivo.
+     * Entregue apenas a receptores registrados pelo próprio app; não inicia processos.
+     */
+    static void publishCallScreened(Context context, String number, String reason, boolean blocked) {
+        Intent event = new Intent(ACTION_CALL_SCREENED)
+                .setPackage(context.getPackageName())
+                .putExtra(EXTRA_NUMBER, number)
+                .putExtra(EXTRA_BLOCKED, blocked)
+                .putExtra(EXTRA_REASON, reason);
+        context.sendBroadcast(event);
+    }
+}
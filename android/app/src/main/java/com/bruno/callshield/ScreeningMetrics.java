@@ -0,0 +1,55 @@
+package com.bruno.callshield;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contadores da triagem por caminho de decisão (tier): chamadas, bloqueios e tempo total.
+ * Atualizados sem locks pela thread de triagem; lidos sob demanda pelo plugin.
+ */
+public final class ScreeningMetrics {
+    // Caminhos de decisão
+    public static final int TIER_CACHED = 0;             // Decisão em cache
+    public static final int TIER_VERIFIED_PASSED = 1;    // STIR/SHAKEN aprovado: só lista de bloqueio explícita
+    public static final int TIER_VERIFIED_FAILED = 2;    // STIR/SHAKEN reprovado: bloqueio direto
+    public static final int TIER_UNVERIFIED = 3;         // Sem verificação: pipeline completo
+    public static final int TIER_VERIFICATION_UNAVAILABLE = 4; // API sem o campo: pipeline completo
+
+    private static final String[] TIER_NAMES = {
+        "cached", "verified_passed", "verified_failed", "unverified", "verification_unavailable"
+    };
+
+    // Por tier: [chamadas, bloqueios, nanossegundos]
+    private static final AtomicLongArray counters = new AtomicLongArray(TIER_NAMES.length * 3);
+
+    private ScreeningMetrics() {
+    }
+
+    /**
+     * Registra uma decisão
+     * @param tier Caminho de decisão
+     * @param blocked Se a chamada foi bloqueada
+     * @param elapsedNanos Tempo da decisão (sem a resposta ao sistema)
+     */
+    public static void record(int tier, boolean blocked, long elapsedNanos) {
+        int base = tier * 3;
+        counters.incrementAndGet(base);
+        if (blocked) {
+            counters.incrementAndGet(base + 1);
+        }
+        counters.addAndGet(base + 2, elapsedNanos);
+    }
+
+    // Contadores como "<tier>.calls", "<tier>.blocked" e "<tier>.totalMicros"
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> metrics = new HashMap<>();
+        for (int tier = 0; tier < TIER_NAMES.length; tier++) {
+            int base = tier * 3;
+            metrics.put(TIER_NAMES[tier] + ".calls", counters.get(base));
+            metrics.put(TIER_NAMES[tier] + ".blocked", counters.get(base + 1));
+            metrics.put(TIER_NAMES[tier] + ".totalMicros", counters.get(base + 2) / 1000);
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,131 @@
+package com.bruno.callshield;
+
+import android.util.LruCache;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Política de triagem de uma linha (PhoneAccount), compilada antes das chamadas.
+ *
+ * Configurações e regras próprias da linha são imutáveis; uma alteração gera um novo
+ * snapshot (ver AccountPolicies), e com ele um cache de decisões vazio, sem afetar as
+ * demais linhas. As listas compartilhadas (lista personalizada, feed de spam) não são
+ * copiadas para cá: continuam no VoipCallBlocker e valem para todas as linhas; quando
+ * elas mudam, a geração de AccountPolicies avança e o cache é descartado na próxima consulta.
+ */
+final class ScreeningPolicy {
+    private static final int CACHE_SIZE = 100; // Tamanho do cache para números recentes
+
+    // Identificador da linha (AccountPolicies.accountId), ou null para a política padrão
+    final String accountId;
+
+    final boolean blockAnonymous;
+    final boolean blockNoValidNumber;
+    final boolean blockFailedVerification;
+    final boolean blockSpamScore;
+
+    // Regras próprias da linha; precedem as listas compartilhadas
+    final Rules rules;
+
+    // Valor em cache de uma chamada permitida (o LruCache não aceita null)
+    static final String NOT_BLOCKED = "";
+
+    // Decisões recentes desta linha (código do motivo do bloqueio, ou NOT_BLOCKED) e a geração
+    // do estado compartilhado em que foram tomadas
+    private final LruCache<String, String> decisions = new LruCache<>(CACHE_SIZE);
+    private long decisionsGeneration;
+
+    ScreeningPolicy(String accountId, boolean[] settings, Rules rules) {
+        this.accountId = accountId;
+        this.blockAnonymous = settings[AccountPolicies.SETTING_BLOCK_ANONYMOUS];
+        this.blockNoValidNumber = settings[AccountPolicies.SETTING_BLOCK_NO_VALID_NUMBER];
+        this.blockFailedVerification = settings[AccountPolicies.SETTING_BLOCK_FAILED_VERIFICATION];
+        this.blockSpamScore = settings[AccountPolicies.SETTING_BLOCK_SPAM_SCORE];
+        this.rules = rules;
+    }
+
+    /**
+     * Decisão em cache para a chamada
+     * @param generation AccountPolicies.decisionGeneration() lida no início da triagem
+     * @return o código do motivo do bloqueio, NOT_BLOCKED se a chamada foi permitida,
+     *         ou null se não houver decisão da geração atual
+     */
+    synchronized String cachedDecision(String cacheKey, long generation) {
+        if (generation != decisionsGeneration) {
+            decisions.evictAll();
+            decisionsGeneration = generation;
+            return null;
+        }
+        return decisions.get(cacheKey);
+    }
+
+    // Guarda uma decisão tomada na geração informada (descartada se o cache já avançou)
+    synchronized void cacheDecision(String cacheKey, String blockReason, long generation) {
+        if (generation == decisionsGeneration) {
+            decisions.put(cacheKey, blockReason != null ? blockReason : NOT_BLOCKED);
+        }
+    }
+
+    /**
+     * Regras imutáveis de uma linha: números, faixas e padrões permitidos e bloqueados.
+     * Linhas com as mesmas entradas compartilham a mesma instância.
+     */
+    static final class Rules {
+        static final Rules EMPTY = new Rules(Collections.emptySet(), Collections.emptySet(), RangeIndex.EMPTY,
+                RangeIndex.EMPTY, new DigitPattern[0], new DigitPattern[0]);
+
+        private final Set<String> blocked;
+        private final Set<String> allowed;
+        private final RangeIndex blockedRanges;
+        private final RangeIndex allowedRanges;
+        private final DigitPattern[] blockedPatterns;
+        private final DigitPattern[] allowedPatterns;
+
+        Rules(Set<String> blocked, Set<String> allowed, RangeIndex blockedRanges, RangeIndex allowedRanges,
+              DigitPattern[] blockedPatterns, DigitPattern[] allowedPatterns) {
+            this.blocked = blocked;
+            this.allowed = allowed;
+            this.blockedRanges = blockedRanges;
+            this.allowedRanges = allowedRanges;
+            this.blockedPatterns = blockedPatterns;
+            this.allowedPatterns = allowedPatterns;
+        }
+
+        boolean isEmpty() {
+            return this == EMPTY;
+        }
+
+        /**
+         * Veredito das regras da linha, com a precedência da lista compartilhada: número exato,
+         * depois faixas, depois padrões; em cada nível a permissão vence o bloqueio
+         * @return RulePipeline.VERDICT_ALLOW, VERDICT_BLOCK ou VERDICT_NONE
+         */
+        int evaluate(String number) {
+            if (isEmpty() || number == null || number.isEmpty()) {
+                return RulePipeline.VERDICT_NONE;
+            }
+            String normalizedNumber = VoipCallBlocker.normalizeNumber(number);
+            if (allowed.contains(normalizedNumber)) {
+                return RulePipeline.VERDICT_ALLOW;
+            }
+            if (blocked.contains(normalizedNumber)) {
+                return RulePipeline.VERDICT_BLOCK;
+            }
+            long key = RangeIndex.key(normalizedNumber);
+            if (allowedRanges.contains(key)) {
+                return RulePipeline.VERDICT_ALLOW;
+            }
+            if (blockedRanges.contains(key)) {
+                return RulePipeline.VERDICT_BLOCK;
+            }
+            if (VoipCallBlocker.matchesAny(allowedPatterns, normalizedNumber)) {
+                return RulePipeline.VERDICT_ALLOW;
+            }
+            if (VoipCallBlocker.matchesAny(blockedPatterns, normalizedNumber)) {
+                return RulePipeline.VERDICT_BLOCK;
+            }
+            return RulePipeline.VERDICT_NONE;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.bruno.callshield;
+
+/**
+ * Extração de características para o modelo de spam, sem alocação.
+ *
+ * Cada característica é quantizada em 0..255 e escrita num int[] fornecido pelo chamador,
+ * para que a inferência use apenas aritmética inteira. Não depende do Android, para que a
+ * avaliação offline (SpamModelEvaluator) rode na JVM com exatamente o mesmo código.
+ */
+public final class SpamFeatures {
+    // Índices das características
+    public static final int DIGIT_ENTROPY = 0;          // Entropia dos dígitos (baixa = número "fabricado")
+    public static final int REPEATED_RUN = 1;           // Maior sequência de dígitos iguais / comprimento
+    public static final int PREFIX_REPUTATION = 2;      // Fração de chamadas rotuladas como spam do mesmo prefixo
+    public static final int CALL_FREQUENCY = 3;         // Chamadas recentes do mesmo número
+    public static final int NIGHT_TIME = 4;             // Entre 21h e 8h
+    public static final int VOIP = 5;                   // Esquema sip/voip
+    public static final int VERIFICATION_FAILED = 6;    // STIR/SHAKEN reprovado
+    public static final int VERIFICATION_PASSED = 7;    // STIR/SHAKEN aprovado
+    public static final int COUNT = 8;
+
+    public static final String[] NAMES = {
+        "digit_entropy", "repeated_run", "prefix_reputation", "call_frequency",
+        "night_time", "voip", "verification_failed", "verification_passed"
+    };
+
+    // Mesmos valores de android.telecom.Connection.VERIFICATION_STATUS_*
+    public static final int VERIFICATION_NOT_VERIFIED = 0;
+    public static final int VERIFICATION_PASSED_STATUS = 1;
+    public static final int VERIFICATION_FAILED_STATUS = 2;
+
+    // Desfecho de uma chamada para a reputação de prefixo. Só fontes independentes do modelo
+    // rotulam a chamada, para que a pontuação não realimente a própria reputação
+    public static final int OUTCOME_UNLABELED = 0;      // Heurísticas, modelo ou cache: não entra na reputação
+    public static final int OUTCOME_LEGITIMATE = 1;     // Permitida pela lista do usuário
+    public static final int OUTCOME_SPAM = 2;           // Lista de bloqueio, feed de spam ou verificação reprovada
+
+    public static final int MAX_VALUE = 255;
+    private static final int PREFIX_DIGITS = 7;         // Dígitos nacionais (DDD + 5 no Brasil, área + central + 1 no NANP)
+    private static final int MAX_COUNTRY_CODE_DIGITS = 3;
+    private static final int FREQUENCY_SATURATION = 5;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final double LOG2_10 = Math.log(10) / Math.log(2);
+
+    private SpamFeatures() {
+    }
+
+    /**
+     * Histórico compacto de chamadas: contadores em tabelas de hash de tamanho fixo
+     * (colisões apenas somam ruído). Frequência por número com janela de 24h e
+     * reputação por prefixo (código do país + 7 dígitos nacionais), só com chamadas rotuladas.
+     */
+    public static final class CallHistory {
+        private static final int NUMBER_SLOTS = 1024;   // Potências de 2
+        private static final int PREFIX_SLOTS = 4096;
+        private static final long WINDOW_MS = 24 * HOUR_MS;
+
+        private final int[] numberCounts = new int[NUMBER_SLOTS];
+        private final long[] numberWindowStart = new long[NUMBER_SLOTS];
+        private final int[] prefixSeen = new int[PREFIX_SLOTS];
+        private final int[] prefixBlocked = new int[PREFIX_SLOTS];
+
+        /**
+         * Registra uma chamada: toda chamada conta na frequência; a reputação do prefixo
+         * só muda com desfechos rotulados
+         * @param countryCode Código do país para números em formato nacional (0 = desconhecido)
+         * @param outcome OUTCOME_*
+         */
+        public synchronized void record(CharSequence number, int countryCode, int outcome, long timeMillis) {
+            long digits = digitsValue(number, 64);
+            if (digits < 0) {
+                return;
+            }
+            int slot = slot(digits, NUMBER_SLOTS);
+            if (timeMillis - numberWindowStart[slot] > WINDOW_MS) {
+                numberWindowStart[slot] = timeMillis;
+                numberCounts[slot] = 0;
+            }
+            numberCounts[slot]++;
+
+            if (outcome == OUTCOME_UNLABELED) {
+                return;
+            }
+            long prefix = prefixValue(number, countryCode);
+            int prefixSlot = slot(prefix, PREFIX_SLOTS);
+            // Contadores divididos pela metade ao saturar, para que o histórico recente pese mais
+            if (prefixSeen[prefixSlot] == Integer.MAX_VALUE / 2) {
+                prefixSeen[prefixSlot] /= 2;
+                prefixBlocked[prefixSlot] /= 2;
+            }
+            prefixSeen[prefixSlot]++;
+            if (outcome == OUTCOME_SPAM) {
+                prefixBlocked[prefixSlot]++;
+            }
+        }
+
+        synchronized int recentCalls(long digits, long timeMillis) {
+            int slot = slot(digits, NUMBER_SLOTS);
+            return timeMillis - numberWindowStart[slot] > WINDOW_MS ? 0 : numberCounts[slot];
+        }
+
+        // Reputação do prefixo em 0..255 (suavizada: prefixos sem histórico ficam em 0)
+        synchronized int prefixReputation(long prefix) {
+            int slot = slot(prefix, PREFIX_SLOTS);
+            return (int) ((long) prefixBlocked[slot] * MAX_VALUE / (prefixSeen[slot] + 2));
+        }
+
+        private static int slot(long value, int slots) {
+            return (int) ((value * 0x9E3779B97F4A7C15L) >>> 40) & (slots - 1);
+        }
+    }
+
+    /**
+     * Extrai as características quantizadas
+     * @param number Número recebido (apenas os dígitos são considerados)
+     * @param voip Se a chamada é sip/voip
+     * @param verification Status STIR/SHAKEN (VERIFICATION_*)
+     * @param localHour Hora local (0-23)
+     * @param countryCode Código do país para números em formato nacional (0 = desconhecido)
+     * @param history Histórico de chamadas (pode ser null)
+     * @param timeMillis Instante da chamada
+     * @param digitCounts Área de trabalho com ao menos 10 posições
+     * @param out Destino com ao menos COUNT posições
+     */
+    public static void extract(CharSequence number, boolean voip, int verification, int localHour,
+                               int countryCode, CallHistory history, long timeMillis, int[] digitCounts, int[] out) {
+        for (int d = 0; d < 10; d++) {
+            digitCounts[d] = 0;
+        }
+
+        int length = 0;
+        int longestRun = 0;
+        int run = 0;
+        int previous = -1;
+        for (int i = 0; number != null && i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c == '@' || c == ';') {
+                break; // Host/parâmetros de URIs SIP
+            }
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            int digit = c - '0';
+            digitCounts[digit]++;
+            length++;
+            run = digit == previous ? run + 1 : 1;
+            longestRun = Math.max(longestRun, run);
+            previous = digit;
+        }
+
+        double entropy = 0;
+        for (int d = 0; d < 10; d++) {
+            if (digitCounts[d] > 0) {
+                double p = (double) digitCounts[d] / length;
+                entropy -= p * Math.log(p);
+            }
+        }
+        entropy /= Math.log(2);
+
+        out[DIGIT_ENTROPY] = length == 0 ? 0 : (int) Math.min(MAX_VALUE, Math.round(entropy / LOG2_10 * MAX_VALUE));
+        out[REPEATED_RUN] = length == 0 ? 0 : longestRun * MAX_VALUE / length;
+
+        if (history != null && length > 0) {
+            out[PREFIX_REPUTATION] = history.prefixReputation(prefixValue(number, countryCode));
+            int recent = history.recentCalls(digitsValue(number, 64), timeMillis);
+            out[CALL_FREQUENCY] = Math.min(recent, FREQUENCY_SATURATION) * MAX_VALUE / FREQUENCY_SATURATION;
+        } else {
+            out[PREFIX_REPUTATION] = 0;
+            out[CALL_FREQUENCY] = 0;
+        }
+
+        out[NIGHT_TIME] = (localHour >= 21 || localHour < 8) ? MAX_VALUE : 0;
+        out[VOIP] = voip ? MAX_VALUE : 0;
+        out[VERIFICATION_FAILED] = verification == VERIFICATION_FAILED_STATUS ? MAX_VALUE : 0;
+        out[VERIFICATION_PASSED] = verification == VERIFICATION_PASSED_STATUS ? MAX_VALUE : 0;
+    }
+
+    /**
+     * Prefixo da reputação: código do país e os primeiros PREFIX_DIGITS dígitos nacionais,
+     * iguais para "+55 11 98765-4321", "0055..." e "(011) 98765-4321" no Brasil
+     * @return o prefixo como valor, ou -1 sem dígitos
+     */
+    static long prefixValue(CharSequence number, int countryCode) {
+        int n = number != null ? number.length() : 0;
+        int i = 0;
+        boolean international = false;
+        while (i < n && (number.charAt(i) < '0' || number.charAt(i) > '9')) {
+            char c = number.charAt(i);
+            if (c == '@' || c == ';') {
+                return -1;
+            }
+            international |= c == '+';
+            i++;
+        }
+        if (!international && i + 1 < n && number.charAt(i) == '0' && number.charAt(i + 1) == '0') {
+            international = true;
+            i += 2;
+        } else if (!international && i < n && number.charAt(i) == '0') {
+            i++; // Zero de tronco
+        }
+
+        // Primeiros dígitos em decimal: no máximo 3 do código do país + PREFIX_DIGITS
+        long digits = 0;
+        int count = 0;
+        for (; i < n && count < MAX_COUNTRY_CODE_DIGITS + PREFIX_DIGITS; i++) {
+            char c = number.charAt(i);
+            if (c == '@' || c == ';') {
+                break;
+            }
+            if (c >= '0' && c <= '9') {
+                digits = digits * 10 + (c - '0');
+                count++;
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+
+        int code = Math.max(countryCode, 0);
+        int national = count;
+        if (international) {
+            int first = (int) (digits / pow10(count - 1));
+            int firstTwo = count >= 2 ? (int) (digits / pow10(count - 2)) : -1;
+            national = count - Math.min(count, NumberingPlan.countryCodeLength(first, firstTwo));
+            code = (int) (digits / pow10(national));
+        }
+        int prefixDigits = Math.min(national, PREFIX_DIGITS);
+        long prefix = (digits / pow10(national - prefixDigits)) % pow10(prefixDigits);
+        return ((long) code * (PREFIX_DIGITS + 1) + prefixDigits) * pow10(PREFIX_DIGITS) + prefix;
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int k = 0; k < exponent; k++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    // Primeiros maxDigits dígitos como valor (com o comprimento misturado), ou -1 sem dígitos
+    static long digitsValue(CharSequence number, int maxDigits) {
+        long value = 0;
+        int count = 0;
+        for (int i = 0; number != null && i < number.length() && count < maxDigits; i++) {
+            char c = number.charAt(i);
+            if (c == '@' || c == ';') {
+                break;
+            }
+            if (c >= '0' && c <= '9') {
+                value = value * 31 + (c - '0' + 1);
+                count++;
+            }
+        }
+        return count == 0 ? -1 : value;
+    }
+}
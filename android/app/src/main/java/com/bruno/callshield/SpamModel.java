@@ -0,0 +1,180 @@
+package com.bruno.callshield;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Modelo de spam quantizado: regressão logística com pesos int8 sobre as
+ * características de {@link SpamFeatures} (0..255).
+ *
+ * A inferência é um produto escalar inteiro comparado com um limiar também inteiro;
+ * a probabilidade só é calculada quando pedida, para estatísticas.
+ *
+ * Formato binário (big-endian, 24 + N bytes):
+ *   int    MAGIC ("SPM1")
+ *   byte   quantidade de características, 3 bytes reservados
+ *   float  escala: logit = escala × acumulador
+ *   int    viés (em unidades do acumulador)
+ *   int    limiar do acumulador (acumulador >= limiar = spam)
+ *   int    versão do modelo
+ *   byte   peso[N] (int8)
+ */
+public final class SpamModel {
+    public static final int MAGIC = 0x53504D31; // "SPM1"
+    private static final int HEADER_SIZE = 24;
+
+    private final float scale;
+    private final int bias;
+    private final int threshold;
+    private final int version;
+    private final int[] weights;
+
+    private SpamModel(float scale, int bias, int threshold, int version, int[] weights) {
+        this.scale = scale;
+        this.bias = bias;
+        this.threshold = threshold;
+        this.version = version;
+        this.weights = weights;
+    }
+
+    /**
+     * Lê um modelo binário
+     * @throws IOException se o formato for inválido ou não corresponder às características atuais
+     */
+    public static SpamModel decode(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE) {
+            throw new IOException("Modelo de spam truncado");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Modelo de spam inválido");
+        }
+        int count = buffer.get() & 0xFF;
+        buffer.position(buffer.position() + 3);
+        if (count != SpamFeatures.COUNT || data.length != HEADER_SIZE + count) {
+            throw new IOException("Modelo com " + count + " características; esperado " + SpamFeatures.COUNT);
+        }
+        float scale = buffer.getFloat();
+        int bias = buffer.getInt();
+        int threshold = buffer.getInt();
+        int version = buffer.getInt();
+        if (!(scale > 0) || Float.isInfinite(scale)) {
+            throw new IOException("Escala do modelo inválida");
+        }
+        int[] weights = new int[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = buffer.get();
+        }
+        return new SpamModel(scale, bias, threshold, version, weights);
+    }
+
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + weights.length).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) weights.length);
+        buffer.put(new byte[3]);
+        buffer.putFloat(scale);
+        buffer.putInt(bias);
+        buffer.putInt(threshold);
+        buffer.putInt(version);
+        for (int weight : weights) {
+            buffer.put((byte) weight);
+        }
+        return buffer.array();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    // Acumulador inteiro para as características quantizadas
+    public int accumulate(int[] features) {
+        int acc = bias;
+        for (int i = 0; i < weights.length; i++) {
+            acc += weights[i] * features[i];
+        }
+        return acc;
+    }
+
+    public boolean isSpam(int[] features) {
+        return accumulate(features) >= threshold;
+    }
+
+    public double probability(int[] features) {
+        return 1.0 / (1.0 + Math.exp(-scale * accumulate(features)));
+    }
+
+    /**
+     * Compila a fonte textual do modelo (pesos em ponto flutuante sobre características em 0..1).
+     * Linhas: "version N", "bias X", "threshold P" (probabilidade) e "&lt;característica&gt; peso";
+     * '#' inicia comentário. Características omitidas têm peso zero.
+     */
+    public static SpamModel compile(String source) throws IOException {
+        double[] weights = new double[SpamFeatures.COUNT];
+        double bias = 0;
+        double thresholdProbability = 0.5;
+        int version = 1;
+
+        try (BufferedReader reader = new BufferedReader(new StringReader(source))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String content = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (content.isEmpty()) {
+                    continue;
+                }
+                String[] parts = content.split("\\s+");
+                if (parts.length != 2) {
+                    throw new IOException("Linha " + lineNumber + " inválida: " + line);
+                }
+                try {
+                    double value = Double.parseDouble(parts[1]);
+                    if (parts[0].equals("version")) {
+                        version = (int) value;
+                    } else if (parts[0].equals("bias")) {
+                        bias = value;
+                    } else if (parts[0].equals("threshold")) {
+                        thresholdProbability = value;
+                    } else {
+                        weights[featureIndex(parts[0], lineNumber)] = value;
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Linha " + lineNumber + ": valor inválido");
+                }
+            }
+        }
+        if (!(thresholdProbability > 0 && thresholdProbability < 1)) {
+            throw new IOException("Limiar deve estar entre 0 e 1");
+        }
+
+        // Pesos em int8 com a maior magnitude em 127; característica q em 0..255 vale q/255
+        double maxWeight = 1e-9;
+        for (double weight : weights) {
+            maxWeight = Math.max(maxWeight, Math.abs(weight));
+        }
+        double weightStep = maxWeight / 127;
+        float scale = (float) (weightStep / SpamFeatures.MAX_VALUE);
+        int[] quantized = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            quantized[i] = (int) Math.round(weights[i] / weightStep);
+        }
+        int quantizedBias = (int) Math.round(bias / scale);
+        double thresholdLogit = Math.log(thresholdProbability / (1 - thresholdProbability));
+        int quantizedThreshold = (int) Math.ceil(thresholdLogit / scale);
+        return new SpamModel(scale, quantizedBias, quantizedThreshold, version, quantized);
+    }
+
+    private static int featureIndex(String name, int lineNumber) throws IOException {
+        for (int i = 0; i < SpamFeatures.NAMES.length; i++) {
+            if (SpamFeatures.NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IOException("Linha " + lineNumber + ": característica desconhecida " + name);
+    }
+}
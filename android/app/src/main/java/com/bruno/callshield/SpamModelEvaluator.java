@@ -0,0 +1,158 @@
+package com.bruno.callshield;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Avaliação offline do modelo de spam na JVM (não faz parte do APK em tempo de execução).
+ *
+ * Uso: java SpamModelEvaluator &lt;modelo.spm|modelo.txt&gt; &lt;chamadas.csv&gt; [fusoHorário em horas] [códigoPaís]
+ *
+ * O CSV tem uma chamada rotulada por linha, em ordem cronológica:
+ *   número,esquema,verificação,timestampMs,rótulo[,desfecho]
+ * com verificação 0/1/2 (não verificado/aprovado/reprovado, -1 se indisponível) e rótulo 1 = spam.
+ * O desfecho opcional é o do dispositivo (SpamFeatures.OUTCOME_*: 0 = sem rótulo, 1 = permitida pela
+ * lista do usuário, 2 = lista de bloqueio, feed ou verificação reprovada; padrão 0).
+ * As chamadas alimentam o histórico na ordem do arquivo e pelo desfecho, como no dispositivo:
+ * o rótulo serve apenas para medir o modelo, nunca entra na reputação de prefixo.
+ * Imprime acurácia, precisão, revocação e o tempo médio por inferência.
+ */
+public final class SpamModelEvaluator {
+    private static final int TIMING_ROUNDS = 20;
+
+    private SpamModelEvaluator() {
+    }
+
+    private static final class Trace {
+        final String number;
+        final boolean voip;
+        final int verification;
+        final long timeMillis;
+        final boolean spam;
+        final int outcome;
+
+        Trace(String number, boolean voip, int verification, long timeMillis, boolean spam, int outcome) {
+            this.number = number;
+            this.voip = voip;
+            this.verification = verification;
+            this.timeMillis = timeMillis;
+            this.spam = spam;
+            this.outcome = outcome;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: SpamModelEvaluator <modelo.spm|modelo.txt> <chamadas.csv> [fusoHorário] [códigoPaís]");
+            System.exit(2);
+        }
+        byte[] modelBytes = Files.readAllBytes(Paths.get(args[0]));
+        SpamModel model = args[0].endsWith(".txt")
+                ? SpamModel.compile(new String(modelBytes, StandardCharsets.UTF_8))
+                : SpamModel.decode(modelBytes);
+        long offsetMillis = args.length > 2 ? (long) (Double.parseDouble(args[2]) * 60 * 60 * 1000L) : 0;
+        int countryCode = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        List<Trace> traces = readTraces(args[1]);
+        if (traces.isEmpty()) {
+            System.err.println("Nenhuma chamada em " + args[1]);
+            System.exit(1);
+        }
+
+        int[] digitCounts = new int[10];
+        int[] features = new int[SpamFeatures.COUNT];
+
+        // Qualidade: cada chamada é pontuada com o histórico anterior a ela
+        SpamFeatures.CallHistory history = new SpamFeatures.CallHistory();
+        int truePositives = 0;
+        int falsePositives = 0;
+        int trueNegatives = 0;
+        int falseNegatives = 0;
+        for (Trace trace : traces) {
+            SpamFeatures.extract(trace.number, trace.voip, trace.verification, localHour(trace.timeMillis, offsetMillis),
+                    countryCode, history, trace.timeMillis, digitCounts, features);
+            boolean predicted = model.isSpam(features);
+            if (predicted && trace.spam) {
+                truePositives++;
+            } else if (predicted) {
+                falsePositives++;
+            } else if (trace.spam) {
+                falseNegatives++;
+            } else {
+                trueNegatives++;
+            }
+            history.record(trace.number, countryCode, trace.outcome, trace.timeMillis);
+        }
+
+        // Latência: extração + inferência, após aquecimento do JIT
+        long sink = 0;
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Trace trace : traces) {
+                SpamFeatures.extract(trace.number, trace.voip, trace.verification,
+                        localHour(trace.timeMillis, offsetMillis), countryCode, history, trace.timeMillis, digitCounts, features);
+                sink += model.accumulate(features);
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        int total = traces.size();
+        System.out.println("Modelo: versão " + model.getVersion() + ", " + total + " chamadas");
+        System.out.printf("Matriz de confusão: VP=%d FP=%d VN=%d FN=%d%n",
+                truePositives, falsePositives, trueNegatives, falseNegatives);
+        System.out.printf("Acurácia:  %.4f%n", ratio(truePositives + trueNegatives, total));
+        System.out.printf("Precisão:  %.4f%n", ratio(truePositives, truePositives + falsePositives));
+        System.out.printf("Revocação: %.4f%n", ratio(truePositives, truePositives + falseNegatives));
+        System.out.printf("Latência:  %.0f ns por chamada (melhor de %d rodadas, checksum %d)%n",
+                (double) bestNanos / total, TIMING_ROUNDS, sink & 0xFF);
+    }
+
+    private static List<Trace> readTraces(String path) throws IOException {
+        List<Trace> traces = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("número") || line.startsWith("number")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 5 && fields.length != 6) {
+                    throw new IOException("Linha " + lineNumber + " inválida: " + line);
+                }
+                try {
+                    String scheme = fields[1].trim();
+                    int outcome = fields.length == 6 ? Integer.parseInt(fields[5].trim()) : SpamFeatures.OUTCOME_UNLABELED;
+                    if (outcome < SpamFeatures.OUTCOME_UNLABELED || outcome > SpamFeatures.OUTCOME_SPAM) {
+                        throw new IOException("Linha " + lineNumber + ": desfecho inválido");
+                    }
+                    traces.add(new Trace(
+                            fields[0].trim(),
+                            scheme.equalsIgnoreCase("sip") || scheme.equalsIgnoreCase("voip"),
+                            Integer.parseInt(fields[2].trim()),
+                            Long.parseLong(fields[3].trim()),
+                            fields[4].trim().equals("1"),
+                            outcome));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Linha " + lineNumber + ": valor inválido");
+                }
+            }
+        }
+        return traces;
+    }
+
+    private static int localHour(long timeMillis, long offsetMillis) {
+        return (int) (((timeMillis + offsetMillis) / (60 * 60 * 1000L)) % 24);
+    }
+
+    private static double ratio(int numerator, int denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+}
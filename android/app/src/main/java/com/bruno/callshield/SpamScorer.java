@@ -0,0 +1,168 @@
+package com.bruno.callshield;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.TimeZone;
+
+/**
+ * Pontuação de spam no dispositivo.
+ *
+ * Avalia o {@link SpamModel} ativo sobre as características de {@link SpamFeatures}.
+ * O modelo vem de filesDir/spam_model.spm (instalado pelo app) ou, na falta dele, de
+ * assets/models/spam.spm. A troca de modelo é atômica: a triagem lê a referência volátil
+ * uma única vez por chamada e nunca vê um modelo parcialmente carregado.
+ */
+public class SpamScorer {
+    private static final String TAG = "SpamScorer";
+    private static final String ASSET_PATH = "models/spam.spm";
+    private static final String MODEL_FILE = "spam_model.spm";
+    private static final int MAX_MODEL_SIZE = 4096;
+
+    // Singleton instance
+    public static final SpamScorer INSTANCE = new SpamScorer();
+
+    private Context context;
+
+    // Modelo ativo (null = pontuação indisponível)
+    private volatile SpamModel model;
+
+    // Histórico em memória para frequência e reputação de prefixo
+    private final SpamFeatures.CallHistory history = new SpamFeatures.CallHistory();
+
+    // Áreas de trabalho por thread, para que a inferência não aloque
+    private final ThreadLocal<int[][]> scratch = new ThreadLocal<int[][]>() {
+        @Override
+        protected int[][] initialValue() {
+            return new int[][] { new int[10], new int[SpamFeatures.COUNT] };
+        }
+    };
+
+    private SpamScorer() {
+    }
+
+    // Método para inicializar o contexto e carregar o modelo
+    public synchronized void initialize(Context appContext) {
+        if (this.context != null) {
+            return;
+        }
+        this.context = appContext.getApplicationContext();
+        model = loadModel();
+    }
+
+    /**
+     * Verifica se a chamada é spam segundo o modelo ativo
+     * @param number Número recebido
+     * @param voip Se a chamada é sip/voip
+     * @param verification Status STIR/SHAKEN (SpamFeatures.VERIFICATION_*, ou outro valor se indisponível)
+     * @param timeMillis Instante da chamada
+     */
+    public boolean isSpam(String number, boolean voip, int verification, long timeMillis) {
+        SpamModel current = model;
+        if (current == null || number == null) {
+            return false;
+        }
+        return current.isSpam(features(number, voip, verification, timeMillis));
+    }
+
+    /**
+     * Probabilidade de spam (0..1), ou -1 sem modelo
+     */
+    public double score(String number, boolean voip, int verification, long timeMillis) {
+        SpamModel current = model;
+        if (current == null || number == null) {
+            return -1;
+        }
+        return current.probability(features(number, voip, verification, timeMillis));
+    }
+
+    /**
+     * Registra uma chamada no histórico usado pelas características
+     * @param outcome Desfecho para a reputação do prefixo (SpamFeatures.OUTCOME_*); decisões do
+     *                próprio modelo ou do cache devem ser OUTCOME_UNLABELED
+     */
+    public void recordCall(String number, int outcome, long timeMillis) {
+        if (number != null) {
+            history.record(number, NeighborSpoofDetector.INSTANCE.getCountryCode(), outcome, timeMillis);
+        }
+    }
+
+    /**
+     * Valida e instala um novo modelo, que passa a valer imediatamente
+     * @throws IOException se o modelo for inválido ou não puder ser gravado
+     */
+    public synchronized void installModel(byte[] data) throws IOException {
+        SpamModel candidate = SpamModel.decode(data);
+
+        // Gravar num temporário e renomear, para nunca deixar um arquivo pela metade
+        File target = new File(context.getFilesDir(), MODEL_FILE);
+        File temp = new File(context.getFilesDir(), MODEL_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Não foi possível instalar o modelo de spam");
+        }
+
+        model = candidate;
+        AccountPolicies.INSTANCE.invalidateDecisions();
+        Log.d(TAG, "Modelo de spam instalado (versão " + candidate.getVersion() + ")");
+    }
+
+    // Versão do modelo ativo, ou 0 sem modelo
+    public int getModelVersion() {
+        SpamModel current = model;
+        return current != null ? current.getVersion() : 0;
+    }
+
+    private int[] features(String number, boolean voip, int verification, long timeMillis) {
+        int[][] buffers = scratch.get();
+        SpamFeatures.extract(number, voip, verification, localHour(timeMillis),
+                NeighborSpoofDetector.INSTANCE.getCountryCode(), history, timeMillis, buffers[0], buffers[1]);
+        return buffers[1];
+    }
+
+    private static int localHour(long timeMillis) {
+        long local = timeMillis + TimeZone.getDefault().getOffset(timeMillis);
+        return (int) ((local / (60 * 60 * 1000L)) % 24);
+    }
+
+    // Modelo instalado pelo app ou, se ausente ou incompatível, o do APK
+    private SpamModel loadModel() {
+        File installed = new File(context.getFilesDir(), MODEL_FILE);
+        if (installed.isFile()) {
+            try (InputStream in = new FileInputStream(installed)) {
+                return SpamModel.decode(readAll(in));
+            } catch (IOException e) {
+                Log.w(TAG, "Modelo instalado inválido, usando o do APK", e);
+            }
+        }
+        try (InputStream in = context.getAssets().open(ASSET_PATH)) {
+            return SpamModel.decode(readAll(in));
+        } catch (IOException e) {
+            Log.e(TAG, "Modelo de spam indisponível", e);
+            return null;
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > MAX_MODEL_SIZE) {
+                throw new IOException("Modelo de spam grande demais");
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,379 @@
+package com.bruno.callshield;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sincronização versionada das listas nativas e das configurações de bloqueio.
+ *
+ * Cada alteração local entra num journal já consolidado (adicionar e depois remover o mesmo
+ * número se anulam). Na sincronização, os patches do remoto a partir da versão local são
+ * aplicados de uma vez nas listas do VoipCallBlocker, e o journal é publicado como um único
+ * patch sobre a nova versão. Em caso de conflito, busca-se de novo e tenta-se outra vez.
+ */
+public class SyncEngine {
+    private static final String TAG = "SyncEngine";
+    private static final String PREFS_NAME = "SyncPrefs";
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_REMOTE_URL = "remoteUrl";
+    private static final String KEY_BLOCKED_ADDED = "journal.blocked.add";
+    private static final String KEY_BLOCKED_REMOVED = "journal.blocked.remove";
+    private static final String KEY_ALLOWED_ADDED = "journal.allowed.add";
+    private static final String KEY_ALLOWED_REMOVED = "journal.allowed.remove";
+    private static final String KEY_SETTING_PREFIX = "journal.setting.";
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Singleton instance
+    public static final SyncEngine INSTANCE = new SyncEngine();
+
+    private Context context;
+    private SharedPreferences preferences;
+    private SyncRemote remote;
+
+    private SyncEngine() {
+    }
+
+    // Método para inicializar o contexto
+    public synchronized void initialize(Context appContext) {
+        if (this.context == null) {
+            this.context = appContext.getApplicationContext();
+            this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            this.remote = createRemote(preferences.getString(KEY_REMOTE_URL, null));
+        }
+    }
+
+    /**
+     * Define o remoto a partir de uma URL: "file:///caminho" ou "http(s)://..." (null desativa)
+     * @throws IllegalArgumentException se o esquema não for suportado
+     */
+    public void configure(String remoteUrl) {
+        SyncRemote newRemote = createRemote(remoteUrl);
+        synchronized (this) {
+            preferences.edit().putString(KEY_REMOTE_URL, remoteUrl).apply();
+            remote = newRemote;
+        }
+        if (newRemote != null) {
+            MaintenanceScheduler.get(context).schedule(MaintenanceScheduler.TASK_CLOUD_SYNC);
+        }
+    }
+
+    // Substitui o remoto sem persistir (testes e remotos personalizados)
+    public synchronized void setRemote(SyncRemote remote) {
+        this.remote = remote;
+    }
+
+    private static SyncRemote createRemote(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        if (url.startsWith("file:")) {
+            return new FileSyncRemote(new File(URI.create(url)));
+        }
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            return new HttpSyncRemote(url);
+        }
+        throw new IllegalArgumentException("Remoto de sincronização não suportado: " + url);
+    }
+
+    /**
+     * Registra uma alteração local de lista
+     * @param blockedList true para a lista de bloqueio, false para a de permissões
+     * @param normalizedNumber Número normalizado
+     * @param added true se foi adicionado, false se foi removido
+     */
+    public void recordListChange(boolean blockedList, String normalizedNumber, boolean added) {
+        Set<String> changed = Collections.singleton(normalizedNumber);
+        Set<String> none = Collections.emptySet();
+        recordListChanges(blockedList, added ? changed : none, added ? none : changed);
+    }
+
+    /**
+     * Registra de uma vez as alterações locais de uma lista (ex.: a diferença ao substituir a
+     * lista personalizada), numa única edição do journal e um único agendamento
+     * @param blockedList true para a lista de bloqueio, false para a de permissões
+     * @param addedNumbers Números normalizados adicionados
+     * @param removedNumbers Números normalizados removidos
+     */
+    public void recordListChanges(boolean blockedList, Set<String> addedNumbers, Set<String> removedNumbers) {
+        if (preferences == null || (addedNumbers.isEmpty() && removedNumbers.isEmpty())) {
+            return;
+        }
+        String addKey = blockedList ? KEY_BLOCKED_ADDED : KEY_ALLOWED_ADDED;
+        String removeKey = blockedList ? KEY_BLOCKED_REMOVED : KEY_ALLOWED_REMOVED;
+
+        boolean changed = false;
+        synchronized (this) {
+            Set<String> additions = new HashSet<>(preferences.getStringSet(addKey, new HashSet<>()));
+            Set<String> removals = new HashSet<>(preferences.getStringSet(removeKey, new HashSet<>()));
+            for (String number : addedNumbers) {
+                if (SyncPatch.pack(number) != RangeIndex.INVALID) {
+                    removals.remove(number);
+                    additions.add(number);
+                    changed = true;
+                }
+            }
+            for (String number : removedNumbers) {
+                if (SyncPatch.pack(number) != RangeIndex.INVALID) {
+                    additions.remove(number);
+                    removals.add(number);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                preferences.edit()
+                        .putStringSet(addKey, additions)
+                        .putStringSet(removeKey, removals)
+                        .apply();
+            }
+        }
+        if (changed) {
+            scheduleSync();
+        }
+    }
+
+    // Registra uma alteração local de configuração
+    public void recordSetting(String key, boolean value) {
+        if (preferences == null) {
+            return;
+        }
+        synchronized (this) {
+            preferences.edit().putBoolean(KEY_SETTING_PREFIX + key, value).apply();
+        }
+        scheduleSync();
+    }
+
+    private void scheduleSync() {
+        boolean configured;
+        synchronized (this) {
+            configured = remote != null;
+        }
+        if (configured) {
+            MaintenanceScheduler.get(context).schedule(MaintenanceScheduler.TASK_CLOUD_SYNC);
+        }
+    }
+
+    /**
+     * Sincroniza com o remoto: aplica os patches pendentes e publica o journal local.
+     * Faz E/S de rede; chamar apenas em segundo plano.
+     * @return estatísticas: version, pulledPatches, pulledBytes, pushedBytes, elapsedMs
+     */
+    public Map<String, Long> sync() throws IOException {
+        Map<String, Long> stats = new HashMap<>();
+        SyncRemote currentRemote;
+        synchronized (this) {
+            currentRemote = remote;
+        }
+        if (currentRemote == null) {
+            throw new IOException("Remoto de sincronização não configurado");
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        long pulledPatches = 0;
+        long pulledBytes = 0;
+        long pushedBytes = 0;
+        long version = preferences.getLong(KEY_VERSION, 0);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            // 1. Aplicar o que o remoto tem de novo
+            List<byte[]> patches = currentRemote.fetchSince(version);
+            if (!patches.isEmpty()) {
+                for (byte[] data : patches) {
+                    pulledBytes += data.length;
+                }
+                version = applyRemotePatches(patches, version);
+                pulledPatches += patches.size();
+            }
+
+            // 2. Publicar o journal local sobre a versão atual
+            SyncPatch local = buildLocalPatch(version);
+            if (local.isEmpty()) {
+                break;
+            }
+            byte[] encoded = local.encode();
+            if (currentRemote.push(local.fromVersion, local.toVersion, encoded)) {
+                pushedBytes += encoded.length;
+                version = local.toVersion;
+                clearJournal(local);
+                break;
+            }
+            Log.d(TAG, "Conflito ao publicar a versão " + local.toVersion + ", tentando de novo");
+        }
+
+        stats.put("version", version);
+        stats.put("pulledPatches", pulledPatches);
+        stats.put("pulledBytes", pulledBytes);
+        stats.put("pushedBytes", pushedBytes);
+        stats.put("elapsedMs", SystemClock.elapsedRealtime() - start);
+        return stats;
+    }
+
+    // Consolida a cadeia de patches e aplica tudo numa única troca das listas
+    private long applyRemotePatches(List<byte[]> patches, long version) throws IOException {
+        // Número -> true (adicionado) / false (removido); o último patch prevalece
+        Map<Long, Boolean> blocked = new HashMap<>();
+        Map<Long, Boolean> allowed = new HashMap<>();
+        Map<String, Boolean> settings = new LinkedHashMap<>();
+
+        long current = version;
+        for (byte[] data : patches) {
+            SyncPatch patch = SyncPatch.decode(data);
+            if (patch.fromVersion != current) {
+                throw new IOException("Cadeia de patches interrompida na versão " + current);
+            }
+            merge(blocked, patch.blockedAdded, patch.blockedRemoved);
+            merge(allowed, patch.allowedAdded, patch.allowedRemoved);
+            // Só as configurações que recordSetting publica (ScreeningCommandReceiver.updateSettings);
+            // isActive e demais chaves locais nunca vêm do remoto
+            for (Map.Entry<String, Boolean> entry : patch.settings.entrySet()) {
+                if (Arrays.asList(AccountPolicies.SETTING_KEYS).contains(entry.getKey())) {
+                    settings.put(entry.getKey(), entry.getValue());
+                }
+            }
+            current = patch.toVersion;
+        }
+
+        // Alterações locais ainda não publicadas têm precedência
+        Set<String> blockedAdded = new HashSet<>();
+        Set<String> blockedRemoved = new HashSet<>();
+        Set<String> allowedAdded = new HashSet<>();
+        Set<String> allowedRemoved = new HashSet<>();
+        synchronized (this) {
+            Set<String> localBlocked = journalNumbers(KEY_BLOCKED_ADDED, KEY_BLOCKED_REMOVED);
+            Set<String> localAllowed = journalNumbers(KEY_ALLOWED_ADDED, KEY_ALLOWED_REMOVED);
+            split(blocked, localBlocked, blockedAdded, blockedRemoved);
+            split(allowed, localAllowed, allowedAdded, allowedRemoved);
+            for (String key : new HashSet<>(settings.keySet())) {
+                if (preferences.contains(KEY_SETTING_PREFIX + key)) {
+                    settings.remove(key);
+                }
+            }
+        }
+
+        if (!VoipCallBlocker.INSTANCE.applySyncDelta(blockedAdded, blockedRemoved, allowedAdded, allowedRemoved)) {
+            throw new IOException("Falha ao aplicar as listas sincronizadas");
+        }
+        if (!settings.isEmpty()) {
+            SharedPreferences.Editor editor =
+                    context.getSharedPreferences(CallBlockerService.PREFS_NAME, Context.MODE_PRIVATE).edit();
+            for (Map.Entry<String, Boolean> entry : settings.entrySet()) {
+                editor.putBoolean(entry.getKey(), entry.getValue());
+            }
+            editor.commit();
+        }
+
+        // A versão só avança depois que as listas foram gravadas; reaplicar um patch é inofensivo
+        preferences.edit().putLong(KEY_VERSION, current).commit();
+        Log.d(TAG, "Sincronizado até a versão " + current + " (" + patches.size() + " patches)");
+        return current;
+    }
+
+    private static void merge(Map<Long, Boolean> changes, long[] added, long[] removed) {
+        for (long number : added) {
+            changes.put(number, true);
+        }
+        for (long number : removed) {
+            changes.put(number, false);
+        }
+    }
+
+    private static void split(Map<Long, Boolean> changes, Set<String> localNumbers,
+                              Set<String> added, Set<String> removed) {
+        for (Map.Entry<Long, Boolean> entry : changes.entrySet()) {
+            String number = SyncPatch.unpack(entry.getKey());
+            if (!localNumbers.contains(number)) {
+                (entry.getValue() ? added : removed).add(number);
+            }
+        }
+    }
+
+    private Set<String> journalNumbers(String addKey, String removeKey) {
+        Set<String> numbers = new HashSet<>(preferences.getStringSet(addKey, new HashSet<>()));
+        numbers.addAll(preferences.getStringSet(removeKey, new HashSet<>()));
+        return numbers;
+    }
+
+    // Monta o patch com o journal local
+    private synchronized SyncPatch buildLocalPatch(long version) {
+        Map<String, Boolean> settings = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(KEY_SETTING_PREFIX) && entry.getValue() instanceof Boolean) {
+                settings.put(entry.getKey().substring(KEY_SETTING_PREFIX.length()), (Boolean) entry.getValue());
+            }
+        }
+        return new SyncPatch(version, version + 1,
+                packAll(KEY_BLOCKED_ADDED), packAll(KEY_BLOCKED_REMOVED),
+                packAll(KEY_ALLOWED_ADDED), packAll(KEY_ALLOWED_REMOVED),
+                settings);
+    }
+
+    private long[] packAll(String key) {
+        Set<String> numbers = preferences.getStringSet(key, new HashSet<>());
+        long[] packed = new long[numbers.size()];
+        int count = 0;
+        for (String number : numbers) {
+            long value = SyncPatch.pack(number);
+            if (value != RangeIndex.INVALID) {
+                packed[count++] = value;
+            }
+        }
+        return count == packed.length ? packed : Arrays.copyOf(packed, count);
+    }
+
+    // Remove do journal o que foi publicado; alterações feitas durante o envio permanecem
+    private synchronized void clearJournal(SyncPatch published) {
+        SharedPreferences.Editor editor = preferences.edit();
+        removePublished(editor, KEY_BLOCKED_ADDED, published.blockedAdded);
+        removePublished(editor, KEY_BLOCKED_REMOVED, published.blockedRemoved);
+        removePublished(editor, KEY_ALLOWED_ADDED, published.allowedAdded);
+        removePublished(editor, KEY_ALLOWED_REMOVED, published.allowedRemoved);
+        for (Map.Entry<String, Boolean> entry : published.settings.entrySet()) {
+            String key = KEY_SETTING_PREFIX + entry.getKey();
+            if (preferences.getBoolean(key, !entry.getValue()) == entry.getValue()) {
+                editor.remove(key);
+            }
+        }
+        editor.putLong(KEY_VERSION, published.toVersion);
+        editor.commit();
+    }
+
+    private void removePublished(SharedPreferences.Editor editor, String key, long[] published) {
+        Set<String> remaining = new HashSet<>(preferences.getStringSet(key, new HashSet<>()));
+        for (long number : published) {
+            remaining.remove(SyncPatch.unpack(number));
+        }
+        editor.putStringSet(key, remaining);
+    }
+
+    // Versão local e tamanho do journal pendente
+    public synchronized Map<String, Long> getStatus() {
+        Map<String, Long> status = new HashMap<>();
+        if (preferences == null) {
+            return status;
+        }
+        long pending = 0;
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getValue() instanceof Set) {
+                pending += ((Set<?>) entry.getValue()).size();
+            } else if (entry.getKey().startsWith(KEY_SETTING_PREFIX)) {
+                pending++;
+            }
+        }
+        status.put("version", preferences.getLong(KEY_VERSION, 0));
+        status.put("pendingChanges", pending);
+        return status;
+    }
+}
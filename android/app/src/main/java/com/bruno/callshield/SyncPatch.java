@@ -0,0 +1,227 @@
+package com.bruno.callshield;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Patch versionado das listas e configurações, trocado com o remoto de sincronização.
+ *
+ * Os números vão empacotados (ver {@link #pack}) em arrays ordenados e são gravados como
+ * diferenças entre valores consecutivos em varint; o conjunto é comprimido com deflate.
+ * Uma atualização diária de algumas centenas de números ocupa poucos kilobytes.
+ *
+ * Formato (antes da compressão):
+ *   int     MAGIC ("SYP1")
+ *   varint  versão de origem, versão de destino
+ *   4 seções (bloqueados +, bloqueados -, permitidos +, permitidos -): varint quantidade, varint diferenças
+ *   varint  quantidade de configurações, seguida de pares (UTF chave, boolean valor)
+ */
+public final class SyncPatch {
+    public static final int MAGIC = 0x53595031; // "SYP1"
+
+    private static final long PLUS_FLAG = 1L << 55;
+    private static final long[] NONE = new long[0];
+    private static final int MAX_INFLATED_SIZE = 64 * 1024 * 1024;
+
+    public final long fromVersion;
+    public final long toVersion;
+    public final long[] blockedAdded;
+    public final long[] blockedRemoved;
+    public final long[] allowedAdded;
+    public final long[] allowedRemoved;
+    public final Map<String, Boolean> settings;
+
+    /**
+     * @param fromVersion Versão sobre a qual o patch se aplica
+     * @param toVersion Versão resultante
+     * @param blockedAdded Números empacotados adicionados à lista de bloqueio (o array é ordenado)
+     * @param blockedRemoved Números removidos da lista de bloqueio
+     * @param allowedAdded Números adicionados à lista de permissões
+     * @param allowedRemoved Números removidos da lista de permissões
+     * @param settings Configurações alteradas
+     */
+    public SyncPatch(long fromVersion, long toVersion,
+                     long[] blockedAdded, long[] blockedRemoved,
+                     long[] allowedAdded, long[] allowedRemoved,
+                     Map<String, Boolean> settings) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.blockedAdded = sorted(blockedAdded);
+        this.blockedRemoved = sorted(blockedRemoved);
+        this.allowedAdded = sorted(allowedAdded);
+        this.allowedRemoved = sorted(allowedRemoved);
+        this.settings = settings != null ? settings : new LinkedHashMap<>();
+    }
+
+    private static long[] sorted(long[] values) {
+        if (values == null) {
+            return NONE;
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    public boolean isEmpty() {
+        return blockedAdded.length == 0 && blockedRemoved.length == 0
+                && allowedAdded.length == 0 && allowedRemoved.length == 0
+                && settings.isEmpty();
+    }
+
+    /**
+     * Empacota um número normalizado: chave numérica de {@link RangeIndex#key} com um bit para o '+'
+     * @return o número empacotado ou RangeIndex.INVALID
+     */
+    public static long pack(String normalizedNumber) {
+        long key = RangeIndex.key(normalizedNumber);
+        if (key == RangeIndex.INVALID) {
+            return RangeIndex.INVALID;
+        }
+        return normalizedNumber.startsWith("+") ? key | PLUS_FLAG : key;
+    }
+
+    /**
+     * Reconstrói o número normalizado a partir do valor empacotado
+     */
+    public static String unpack(long packed) {
+        int digits = (int) ((packed & ~PLUS_FLAG) >>> 50);
+        long value = packed & ((1L << 50) - 1);
+        char[] chars = new char[digits + 1];
+        for (int i = digits; i > 0; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        if ((packed & PLUS_FLAG) != 0) {
+            chars[0] = '+';
+            return new String(chars);
+        }
+        return new String(chars, 1, digits);
+    }
+
+    // Serializa e comprime o patch
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            writeVarint(out, fromVersion);
+            writeVarint(out, toVersion);
+            writeSortedSet(out, blockedAdded);
+            writeSortedSet(out, blockedRemoved);
+            writeSortedSet(out, allowedAdded);
+            writeSortedSet(out, allowedRemoved);
+            writeVarint(out, settings.size());
+            for (Map.Entry<String, Boolean> entry : settings.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeBoolean(entry.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Descomprime e interpreta um patch
+     * @throws IOException se os dados estiverem corrompidos
+     */
+    public static SyncPatch decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflate(data)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Patch de sincronização inválido");
+            }
+            long from = readVarint(in);
+            long to = readVarint(in);
+            if (to <= from) {
+                throw new IOException("Versões do patch inválidas: " + from + " -> " + to);
+            }
+            long[] blockedAdded = readSortedSet(in);
+            long[] blockedRemoved = readSortedSet(in);
+            long[] allowedAdded = readSortedSet(in);
+            long[] allowedRemoved = readSortedSet(in);
+            int settingCount = readCount(in);
+            Map<String, Boolean> settings = new LinkedHashMap<>();
+            for (int i = 0; i < settingCount; i++) {
+                settings.put(in.readUTF(), in.readBoolean());
+            }
+            return new SyncPatch(from, to, blockedAdded, blockedRemoved, allowedAdded, allowedRemoved, settings);
+        }
+    }
+
+    // Valores ordenados gravados como diferenças (a primeira em relação a zero)
+    private static void writeSortedSet(DataOutputStream out, long[] values) throws IOException {
+        writeVarint(out, values.length);
+        long previous = 0;
+        for (long value : values) {
+            writeVarint(out, value - previous);
+            previous = value;
+        }
+    }
+
+    private static long[] readSortedSet(DataInputStream in) throws IOException {
+        int count = readCount(in);
+        long[] values = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarint(in);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    // Quantidade de itens de uma seção: cada item ocupa ao menos um byte, então a quantidade
+    // não pode passar do que resta do patch (in lê de um array, e available() é exato)
+    private static int readCount(DataInputStream in) throws IOException {
+        long count = readVarint(in);
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Quantidade inválida no patch: " + count);
+        }
+        return (int) count;
+    }
+
+    // Descomprime o patch inteiro, até MAX_INFLATED_SIZE
+    private static byte[] inflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (out.size() + read > MAX_INFLATED_SIZE) {
+                    throw new IOException("Patch grande demais");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // Varint sem sinal (LEB128): 7 bits por byte, bit alto indica continuação
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Patch truncado");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint inválido");
+    }
+}
@@ -0,0 +1,22 @@
+package com.bruno.callshield;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Remoto de sincronização: guarda a sequência linear de patches (ver {@link SyncPatch}).
+ * Implementações: {@link FileSyncRemote} (diretório local) e {@link HttpSyncRemote}.
+ */
+public interface SyncRemote {
+    /**
+     * Patches comprimidos que formam uma cadeia a partir da versão informada,
+     * na ordem de aplicação. Vazio se a versão já é a mais recente.
+     */
+    List<byte[]> fetchSince(long version) throws IOException;
+
+    /**
+     * Publica um patch sobre a versão atual do remoto
+     * @return false se o remoto já avançou além de fromVersion (conflito; buscar e tentar de novo)
+     */
+    boolean push(long fromVersion, long toVersion, byte[] patch) throws IOException;
+}
@@ -7,17 +7,41 @@ import android.os.Looper;
 import android.util.Log;
 import android.util.LruCache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.regex.Pattern;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class VoipCallBlocker {
     private static final String TAG = "VoipCallBlocker";
     private static final String PREFS_NAME = "VoipBlockerPrefs";
     private static final String KEY_BLOCKED_NUMBERS = "blockedNumbers";
     private static final String KEY_ALLOWED_NUMBERS = "allowedNumbers";
+    private static final String KEY_BLOCKED_PATTERNS = "blockedPatterns";
+    private static final String KEY_ALLOWED_PATTERNS = "allowedPatterns";
+    private static final String KEY_CACHE_SNAPSHOT = "decisionCacheSnapshot";
+    private static final String KEY_CACHE_SNAPSHOT_GENERATION = "decisionCacheSnapshotGeneration";
+    private static final String KEY_LIST_GENERATION = "listGeneration";
+    private static final String BLOCKED_RANGES_FILE = "ranges_blocked.bin";
+    private static final String ALLOWED_RANGES_FILE = "ranges_allowed.bin";
+    private static final String FEED_ASSET_DIR = "feeds/";
     private static final int CACHE_SIZE = 200;
     
     // Singleton instance
@@ -26,6 +50,12 @@ public class VoipCallBlocker {
     // Cache para decisões de bloqueio
     private final LruCache<String, Boolean> blockDecisionCache = new LruCache<>(CACHE_SIZE);
     
+    // Geração das listas: incrementada (e persistida) a cada alteração, carimba o snapshot do cache
+    private volatile long listGeneration;
+    
+    // Há um snapshot do cache agendado para a próxima janela de manutenção
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+    
     // Executor para operações em segundo plano
     private final Executor backgroundExecutor = Executors.newSingleThreadExecutor();
     
@@ -42,24 +72,159 @@ public class VoipCallBlocker {
     private Set<String> blockedNumbers = new HashSet<>();
     private Set<String> allowedNumbers = new HashSet<>();
     
-    // Padrões suspeitos pré-compilados para melhor desempenho
-    private final Pattern[] suspiciousPatterns = {
-        Pattern.compile("^\\+?0{5,}\\d*$"),  // Números com muitos zeros
-        Pattern.compile("^\\+?1{5,}\\d*$"),  // Números com muitos uns
-        Pattern.compile("^\\+?(.)(\\1{4,})\\d*$")  // Dígitos repetidos
-    };
+    // Faixas numéricas bloqueadas e permitidas
+    private volatile RangeIndex blockedRanges = RangeIndex.EMPTY;
+    private volatile RangeIndex allowedRanges = RangeIndex.EMPTY;
+    
+    // Padrões da lista personalizada (dialeto linear, ver DigitPattern)
+    private volatile DigitPattern[] blockedPatterns = new DigitPattern[0];
+    private volatile DigitPattern[] allowedPatterns = new DigitPattern[0];
+    
+    // Feed de spam empacotado no APK (compilado offline pelo FeedCompiler)
+    private volatile FeedIndex spamFeed = FeedIndex.EMPTY;
+    
+    // Tamanho mínimo da sequência de dígitos repetidos no início do número
+    private static final int SUSPICIOUS_RUN_LENGTH = 5;
+
+    // Pipeline de regras com ordenação adaptativa
+    private final RulePipeline rulePipeline = buildRulePipeline();
 
     // Construtor privado para singleton
     private VoipCallBlocker() {
         // Inicialização mínima aqui
     }
     
+    // Monta os estágios de triagem. A lista do usuário vem primeiro, com a mesma precedência
+    // do custom_phone da triagem em TS: número exato (tier 0), depois faixas (tier 1), depois
+    // padrões (tier 2); em cada nível a permissão vence o bloqueio. Os estágios de bloqueio
+    // gerais (tier 3) são independentes e podem ser reordenados.
+    private RulePipeline buildRulePipeline() {
+        List<RulePipeline.Stage> stages = new ArrayList<>();
+        
+        stages.add(new RulePipeline.Stage("custom_exact", 0) {
+            @Override
+            protected int evaluate(String normalizedNumber, String rawNumber, String scheme) {
+                return exactVerdict(normalizedNumber);
+            }
+        });
+        
+        stages.add(new RulePipeline.Stage("custom_ranges", 1) {
+            @Override
+            protected int evaluate(String normalizedNumber, String rawNumber, String scheme) {
+                return rangeVerdict(RangeIndex.key(normalizedNumber));
+            }
+        });
+        
+        stages.add(new RulePipeline.Stage("custom_patterns", 2) {
+            @Override
+            protected int evaluate(String normalizedNumber, String rawNumber, String scheme) {
+                return patternVerdict(normalizedNumber);
+            }
+        });
+        
+        // Sequência de um mesmo dígito repetido no início (zeros e uns inclusive): varredura
+        // linear em vez da regex com retroreferência ^\+?(.)(\1{4,})\d*$
+        stages.add(new RulePipeline.Stage("pattern_repeated", 3) {
+            @Override
+            protected int evaluate(String normalizedNumber, String rawNumber, String scheme) {
+                return DigitPattern.hasLeadingRun(rawNumber, SUSPICIOUS_RUN_LENGTH)
+                        ? RulePipeline.VERDICT_BLOCK : RulePipeline.VERDICT_NONE;
+            }
+        });
+        
+        stages.add(new RulePipeline.Stage("spam_feed", 3) {
+            @Override
+            protected int evaluate(String normalizedNumber, String rawNumber, String scheme) {
+                return spamFeed.matches(RangeIndex.key(normalizedNumber), rawNumber)
+                        ? RulePipeline.VERDICT_BLOCK : RulePipeline.VERDICT_NONE;
+            }
+        });
+        
+        stages.add(new RulePipeline.Stage("neighbor_spoof", 3) {
+            @Override
+            protected int evaluate(String normalizedNumber, String rawNumber, String scheme) {
+                return NeighborSpoofDetector.INSTANCE.isSuspect(rawNumber)
+                        ? RulePipeline.VERDICT_BLOCK : RulePipeline.VERDICT_NONE;
+            }
+        });
+        
+        return new RulePipeline(stages);
+    }
+    
+    /**
+     * Veredito da lista do usuário (números, faixas e padrões), com a precedência do pipeline
+     * @return RulePipeline.VERDICT_ALLOW, VERDICT_BLOCK ou VERDICT_NONE
+     */
+    int customListVerdict(String number) {
+        if (number == null || number.isEmpty()) {
+            return RulePipeline.VERDICT_NONE;
+        }
+        String normalizedNumber = normalizeNumber(number);
+        int verdict = exactVerdict(normalizedNumber);
+        if (verdict == RulePipeline.VERDICT_NONE) {
+            verdict = rangeVerdict(RangeIndex.key(normalizedNumber));
+        }
+        if (verdict == RulePipeline.VERDICT_NONE) {
+            verdict = patternVerdict(normalizedNumber);
+        }
+        return verdict;
+    }
+    
+    private int exactVerdict(String normalizedNumber) {
+        if (normalizedNumber.isEmpty()) {
+            return RulePipeline.VERDICT_NONE;
+        }
+        if (allowedNumbers.contains(normalizedNumber)) {
+            return RulePipeline.VERDICT_ALLOW;
+        }
+        return blockedNumbers.contains(normalizedNumber) ? RulePipeline.VERDICT_BLOCK : RulePipeline.VERDICT_NONE;
+    }
+    
+    private int rangeVerdict(long key) {
+        if (allowedRanges.contains(key)) {
+            return RulePipeline.VERDICT_ALLOW;
+        }
+        return blockedRanges.contains(key) ? RulePipeline.VERDICT_BLOCK : RulePipeline.VERDICT_NONE;
+    }
+    
+    private int patternVerdict(String normalizedNumber) {
+        if (matchesAny(allowedPatterns, normalizedNumber)) {
+            return RulePipeline.VERDICT_ALLOW;
+        }
+        return matchesAny(blockedPatterns, normalizedNumber) ? RulePipeline.VERDICT_BLOCK : RulePipeline.VERDICT_NONE;
+    }
+    
+    // Cada padrão tem seu próprio orçamento de passos; estourar o orçamento conta como não correspondência
+    static boolean matchesAny(DigitPattern[] patterns, String number) {
+        if (number.isEmpty()) {
+            return false;
+        }
+        for (DigitPattern pattern : patterns) {
+            int result = pattern.match(number, DigitPattern.DEFAULT_STEP_BUDGET);
+            if (result == DigitPattern.MATCH) {
+                return true;
+            }
+            if (result == DigitPattern.BUDGET_EXCEEDED) {
+                Log.w(TAG, "Orçamento esgotado no padrão " + pattern.getSource());
+            }
+        }
+        return false;
+    }
+    
+    // Ordem atual das regras com estatísticas, para depuração
+    public List<String> getRuleOrder() {
+        return rulePipeline.describeOrder();
+    }
+    
     // Método para inicializar o contexto
     public void initialize(Context appContext) {
         if (this.context == null) {
             this.context = appContext.getApplicationContext();
             this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
             
+            // Journal de sincronização das alterações de lista
+            SyncEngine.INSTANCE.initialize(context);
+            
             // Carregar listas de bloqueio/permissão em segundo plano
             backgroundExecutor.execute(this::loadBlockLists);
         }
@@ -81,34 +246,20 @@ public class VoipCallBlocker {
             return cachedDecision;
         }
         
-        // Verificar se o número está na lista de permissões
-        if (isNumberAllowed(number)) {
-            blockDecisionCache.put(cacheKey, false);
-            return false;
-        }
-        
-        // Verificar se o número está na lista de bloqueio
-        if (isNumberBlocked(number)) {
-            blockDecisionCache.put(cacheKey, true);
-            
-            // Notificar sobre o bloqueio em segundo plano
-            final String finalNumber = number;
-            backgroundExecutor.execute(() -> {
-                if (context != null) {
-                    String reason = determineBlockReason(finalNumber, scheme);
-                    NotificationHelper.showBlockedCallNotification(context, finalNumber, reason);
-                }
-            });
-            
-            return true;
-        }
-        
-        // Verificar padrões suspeitos
-        boolean shouldBlock = checkIfShouldBlock(number, scheme);
+        // Avaliar as regras na ordem adaptativa do pipeline
+        String normalizedNumber = normalizeNumber(number);
+        boolean shouldBlock = rulePipeline.evaluate(normalizedNumber, number, scheme) == RulePipeline.VERDICT_BLOCK;
         
         // Armazenar decisão em cache
         blockDecisionCache.put(cacheKey, shouldBlock);
         
+        // Persistir o cache na próxima janela de manutenção; o agendamento grava preferências e
+        // fala com o JobScheduler, então sai da triagem e acontece uma vez por janela
+        if (snapshotScheduled.compareAndSet(false, true)) {
+            backgroundExecutor.execute(() ->
+                    MaintenanceScheduler.get(context).schedule(MaintenanceScheduler.TASK_CACHE_SNAPSHOT));
+        }
+        
         // Se decidimos bloquear, notificar em segundo plano
         if (shouldBlock) {
             final String finalNumber = number;
@@ -136,36 +287,30 @@ public class VoipCallBlocker {
         return blockedNumbers.contains(normalizedNumber);
     }
     
-    // Verificar se o número está na lista de permissões
-    private boolean isNumberAllowed(String number) {
-        if (number == null || number.isEmpty()) {
-            return false;
-        }
-        
-        // Normalizar o número para comparação
-        String normalizedNumber = normalizeNumber(number);
-        
-        // Verificar na lista de permissões
-        return allowedNumbers.contains(normalizedNumber);
+    /**
+     * Bloqueio explícito do usuário: número, faixa ou padrão bloqueado sem permissão mais específica.
+     * Caminho barato usado para chamadas com verificação STIR/SHAKEN aprovada.
+     */
+    boolean isExplicitlyBlocked(String number) {
+        return customListVerdict(number) == RulePipeline.VERDICT_BLOCK;
+    }
+    
+    // Permissão explícita do usuário: número, faixa ou padrão permitido sem bloqueio mais específico
+    boolean isExplicitlyAllowed(String number) {
+        return customListVerdict(number) == RulePipeline.VERDICT_ALLOW;
     }
     
-    // Lógica para determinar se a chamada deve ser bloqueada
-    private boolean checkIfShouldBlock(String number, String scheme) {
-        // Se não temos número, não podemos verificar
+    /**
+     * Número (ou host da URI SIP) no feed de spam empacotado, fora da lista de permissões do usuário
+     */
+    boolean isInSpamFeed(String number) {
         if (number == null || number.isEmpty()) {
             return false;
         }
-        
-        // Verificar padrões suspeitos
-        for (Pattern pattern : suspiciousPatterns) {
-            if (pattern.matcher(number).matches()) {
-                return true;
-            }
+        if (isExplicitlyAllowed(number)) {
+            return false;
         }
-        
-        // Implementar lógica adicional de bloqueio aqui
-        // Por enquanto, retornamos false como no código original
-        return false;
+        return spamFeed.matches(RangeIndex.key(normalizeNumber(number)), number);
     }
     
     // Determina o motivo do bloqueio para exibir na notificação
@@ -175,6 +320,12 @@ public class VoipCallBlocker {
             return "Número anônimo";
         } else if (isNumberBlocked(number)) {
             return "Número na lista de bloqueio";
+        } else if (blockedRanges.contains(RangeIndex.key(normalizeNumber(number)))) {
+            return "Número em faixa bloqueada";
+        } else if (isInSpamFeed(number)) {
+            return "Número em lista de spam conhecida";
+        } else if (NeighborSpoofDetector.INSTANCE.isSuspect(number)) {
+            return "Possível número clonado (mesmo prefixo)";
         } else if (scheme != null && scheme.equalsIgnoreCase("sip")) {
             return "Chamada SIP suspeita";
         } else {
@@ -187,6 +338,16 @@ public class VoipCallBlocker {
         try {
             blockedNumbers = new HashSet<>(preferences.getStringSet(KEY_BLOCKED_NUMBERS, new HashSet<>()));
             allowedNumbers = new HashSet<>(preferences.getStringSet(KEY_ALLOWED_NUMBERS, new HashSet<>()));
+            blockedRanges = readRanges(BLOCKED_RANGES_FILE);
+            allowedRanges = readRanges(ALLOWED_RANGES_FILE);
+            blockedPatterns = compilePatterns(preferences.getStringSet(KEY_BLOCKED_PATTERNS, new HashSet<>()));
+            allowedPatterns = compilePatterns(preferences.getStringSet(KEY_ALLOWED_PATTERNS, new HashSet<>()));
+            spamFeed = loadSpamFeed();
+            listGeneration = preferences.getLong(KEY_LIST_GENERATION, 0);
+            restoreDecisionCache();
+            
+            // Decisões tomadas antes do carregamento usaram listas vazias
+            AccountPolicies.INSTANCE.invalidateDecisions();
         } catch (Exception e) {
             Log.e(TAG, "Erro ao carregar listas de bloqueio", e);
             blockedNumbers = new HashSet<>();
@@ -194,6 +355,286 @@ public class VoipCallBlocker {
         }
     }
     
+    // Compila padrões salvos; os inválidos (rejeitados na importação) são ignorados
+    private static DigitPattern[] compilePatterns(Set<String> sources) {
+        List<DigitPattern> patterns = new ArrayList<>();
+        for (String source : sources) {
+            try {
+                patterns.add(DigitPattern.compileEntry(source));
+            } catch (DigitPattern.SyntaxException e) {
+                Log.w(TAG, "Padrão ignorado: " + source + " (" + e.getMessage() + ")");
+            }
+        }
+        return patterns.toArray(new DigitPattern[0]);
+    }
+    
+    // Salvar o cache de decisões (executado numa janela de manutenção)
+    void snapshotDecisionCache() {
+        if (preferences == null) {
+            return;
+        }
+        snapshotScheduled.set(false);
+        
+        long generation = listGeneration;
+        Set<String> snapshot = new HashSet<>();
+        for (Map.Entry<String, Boolean> entry : blockDecisionCache.snapshot().entrySet()) {
+            snapshot.add((entry.getValue() ? "1|" : "0|") + entry.getKey());
+        }
+        // As listas mudaram durante a cópia: o cache foi esvaziado, não há o que salvar
+        if (generation != listGeneration) {
+            return;
+        }
+        preferences.edit()
+            .putStringSet(KEY_CACHE_SNAPSHOT, snapshot)
+            .putLong(KEY_CACHE_SNAPSHOT_GENERATION, generation)
+            .apply();
+    }
+    
+    // Restaurar o cache de decisões salvo na última janela de manutenção
+    private void restoreDecisionCache() {
+        // Snapshot de outra geração das listas: as decisões podem não valer mais
+        if (preferences.getLong(KEY_CACHE_SNAPSHOT_GENERATION, -1) != listGeneration) {
+            return;
+        }
+        for (String item : preferences.getStringSet(KEY_CACHE_SNAPSHOT, new HashSet<>())) {
+            if (item.length() > 2) {
+                String key = item.substring(2);
+                // Números cobertos pela lista do usuário (números, faixas ou padrões) são reavaliados
+                String number = key.substring(key.indexOf(':') + 1);
+                if (customListVerdict(number) == RulePipeline.VERDICT_NONE) {
+                    blockDecisionCache.put(key, item.charAt(0) == '1');
+                }
+            }
+        }
+    }
+    
+    /**
+     * Descarta o snapshot do cache depois de uma alteração das listas: avança a geração e
+     * remove o snapshot salvo na mesma edição que grava as listas
+     * @param editor Edição que grava as listas alteradas
+     */
+    private SharedPreferences.Editor invalidateSnapshot(SharedPreferences.Editor editor) {
+        listGeneration++;
+        return editor
+            .putLong(KEY_LIST_GENERATION, listGeneration)
+            .remove(KEY_CACHE_SNAPSHOT)
+            .remove(KEY_CACHE_SNAPSHOT_GENERATION);
+    }
+    
+    // Ler um índice de faixas salvo
+    private RangeIndex readRanges(String fileName) {
+        File file = new File(context.getFilesDir(), fileName);
+        if (!file.exists()) {
+            return RangeIndex.EMPTY;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return RangeIndex.readFrom(in);
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao carregar faixas de " + fileName, e);
+            return RangeIndex.EMPTY;
+        }
+    }
+    
+    // Ler o feed de spam dos assets; sem feed empacotado, a etapa nunca bloqueia
+    private FeedIndex loadSpamFeed() {
+        try (InputStream numbersIn = openAsset(FEED_ASSET_DIR + FeedIndex.NUMBERS_FILE);
+             InputStream addressesIn = openAsset(FEED_ASSET_DIR + FeedIndex.IP_FILE);
+             InputStream domainsIn = openAsset(FEED_ASSET_DIR + FeedIndex.DOMAINS_FILE)) {
+            FeedIndex feed = FeedIndex.read(numbersIn != null ? new BufferedInputStream(numbersIn) : null,
+                    addressesIn != null ? new BufferedInputStream(addressesIn) : null, domainsIn);
+            Log.i(TAG, "Feed de spam: " + feed.getNumberRanges() + " faixas, " + feed.getAddressRanges()
+                    + " blocos IPv4, " + feed.getDomains() + " domínios");
+            return feed;
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao carregar o feed de spam", e);
+            return FeedIndex.EMPTY;
+        }
+    }
+    
+    private InputStream openAsset(String path) throws IOException {
+        try {
+            return context.getAssets().open(path);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+    
+    // Salvar um índice de faixas (arquivo temporário + rename para ser atômico)
+    private void writeRanges(String fileName, RangeIndex ranges) {
+        File file = new File(context.getFilesDir(), fileName);
+        File temp = new File(context.getFilesDir(), fileName + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            ranges.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao salvar faixas em " + fileName, e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Erro ao substituir " + fileName);
+        }
+    }
+    
+    /**
+     * Substitui as listas pelo conteúdo da lista personalizada do app
+     * @param blocked Números bloqueados (já normalizados)
+     * @param allowed Números permitidos (já normalizados)
+     * @param blockedRangeIndex Faixas bloqueadas
+     * @param allowedRangeIndex Faixas permitidas
+     * @param blockedPatternList Padrões bloqueados (já compilados)
+     * @param allowedPatternList Padrões permitidos (já compilados)
+     */
+    public void replaceCustomList(Set<String> blocked, Set<String> allowed,
+                                  RangeIndex blockedRangeIndex, RangeIndex allowedRangeIndex,
+                                  List<DigitPattern> blockedPatternList, List<DigitPattern> allowedPatternList) {
+        backgroundExecutor.execute(() -> {
+            recordDifferences(true, blockedNumbers, blocked);
+            recordDifferences(false, allowedNumbers, allowed);
+            
+            writeRanges(BLOCKED_RANGES_FILE, blockedRangeIndex);
+            writeRanges(ALLOWED_RANGES_FILE, allowedRangeIndex);
+            
+            // Atualizar listas em memória
+            blockedNumbers = blocked;
+            allowedNumbers = allowed;
+            blockedRanges = blockedRangeIndex;
+            allowedRanges = allowedRangeIndex;
+            blockedPatterns = blockedPatternList.toArray(new DigitPattern[0]);
+            allowedPatterns = allowedPatternList.toArray(new DigitPattern[0]);
+            
+            // As decisões anteriores podem ter mudado
+            blockDecisionCache.evictAll();
+            AccountPolicies.INSTANCE.invalidateDecisions();
+            invalidateSnapshot(preferences.edit()
+                .putStringSet(KEY_BLOCKED_NUMBERS, blocked)
+                .putStringSet(KEY_ALLOWED_NUMBERS, allowed)
+                .putStringSet(KEY_BLOCKED_PATTERNS, sourcesOf(blockedPatternList))
+                .putStringSet(KEY_ALLOWED_PATTERNS, sourcesOf(allowedPatternList)))
+                .apply();
+        });
+    }
+    
+    private static Set<String> sourcesOf(List<DigitPattern> patterns) {
+        Set<String> sources = new HashSet<>();
+        for (DigitPattern pattern : patterns) {
+            sources.add(pattern.getSource());
+        }
+        return sources;
+    }
+    
+    // Registrar no journal de sincronização o que mudou entre duas versões de uma lista
+    private static void recordDifferences(boolean blockedList, Set<String> previous, Set<String> current) {
+        Set<String> added = new HashSet<>();
+        for (String number : current) {
+            if (!previous.contains(number)) {
+                added.add(number);
+            }
+        }
+        Set<String> removed = new HashSet<>();
+        for (String number : previous) {
+            if (!current.contains(number)) {
+                removed.add(number);
+            }
+        }
+        SyncEngine.INSTANCE.recordListChanges(blockedList, added, removed);
+    }
+    
+    /**
+     * Aplica alterações recebidas da sincronização numa única troca das listas.
+     * Executado no executor das listas para não concorrer com as demais alterações;
+     * bloqueia até a gravação terminar.
+     * @return true se as listas foram gravadas
+     */
+    boolean applySyncDelta(Set<String> blockedAdded, Set<String> blockedRemoved,
+                           Set<String> allowedAdded, Set<String> allowedRemoved) {
+        if (preferences == null) {
+            return false;
+        }
+        
+        FutureTask<Boolean> task = new FutureTask<>(() -> {
+            Set<String> blocked = new HashSet<>(blockedNumbers);
+            Set<String> allowed = new HashSet<>(allowedNumbers);
+            blocked.removeAll(blockedRemoved);
+            blocked.addAll(blockedAdded);
+            allowed.removeAll(allowedRemoved);
+            allowed.addAll(allowedAdded);
+            
+            // Como em addBlockedNumber/addAllowedNumber, entrar numa lista tira o número da outra
+            // (se o mesmo patch adiciona às duas, ficam as duas e a permissão vence)
+            for (String number : blockedAdded) {
+                if (!allowedAdded.contains(number)) {
+                    allowed.remove(number);
+                }
+            }
+            for (String number : allowedAdded) {
+                if (!blockedAdded.contains(number)) {
+                    blocked.remove(number);
+                }
+            }
+            
+            // Gravação síncrona: a versão só avança depois que as listas estão no disco
+            boolean saved = invalidateSnapshot(preferences.edit()
+                .putStringSet(KEY_BLOCKED_NUMBERS, blocked)
+                .putStringSet(KEY_ALLOWED_NUMBERS, allowed))
+                .commit();
+            if (saved) {
+                blockedNumbers = blocked;
+                allowedNumbers = allowed;
+                blockDecisionCache.evictAll();
+                AccountPolicies.INSTANCE.invalidateDecisions();
+            }
+            return saved;
+        });
+        backgroundExecutor.execute(task);
+        
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Erro ao aplicar listas sincronizadas", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Grava a lista personalizada atual (números, faixas e padrões) numa transferência em lote.
+     * Executado no executor das listas para ler um estado consistente; bloqueia até terminar.
+     */
+    void exportCustomList(BulkTransfer.Writer writer) throws IOException {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            for (String number : blockedNumbers) {
+                writer.write(BulkTransfer.TYPE_PHONE, true, number);
+            }
+            for (String number : allowedNumbers) {
+                writer.write(BulkTransfer.TYPE_PHONE, false, number);
+            }
+            for (int i = 0; i < blockedRanges.size(); i++) {
+                writer.write(BulkTransfer.TYPE_RANGE, true, blockedRanges.formatRange(i));
+            }
+            for (int i = 0; i < allowedRanges.size(); i++) {
+                writer.write(BulkTransfer.TYPE_RANGE, false, allowedRanges.formatRange(i));
+            }
+            for (DigitPattern pattern : blockedPatterns) {
+                writer.write(BulkTransfer.TYPE_PATTERN, true, pattern.getSource());
+            }
+            for (DigitPattern pattern : allowedPatterns) {
+                writer.write(BulkTransfer.TYPE_PATTERN, false, pattern.getSource());
+            }
+            return null;
+        });
+        backgroundExecutor.execute(task);
+        
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportação interrompida");
+        } catch (ExecutionException e) {
+            throw new IOException("Erro ao exportar a lista personalizada", e.getCause());
+        }
+    }
+    
     // Adicionar número à lista de bloqueio
     public void addBlockedNumber(String number) {
         if (number == null || number.isEmpty()) {
@@ -211,17 +652,22 @@ public class VoipCallBlocker {
             allowList.remove(normalizedNumber);
             
             // Salvar alterações
-            preferences.edit()
+            invalidateSnapshot(preferences.edit()
                 .putStringSet(KEY_BLOCKED_NUMBERS, updatedList)
-                .putStringSet(KEY_ALLOWED_NUMBERS, allowList)
+                .putStringSet(KEY_ALLOWED_NUMBERS, allowList))
                 .apply();
             
             // Atualizar listas em memória
             blockedNumbers = updatedList;
             allowedNumbers = allowList;
             
+            // Registrar no journal de sincronização
+            SyncEngine.INSTANCE.recordListChange(true, normalizedNumber, true);
+            SyncEngine.INSTANCE.recordListChange(false, normalizedNumber, false);
+            
             // Limpar cache para este número
             clearCacheForNumber(normalizedNumber);
+            AccountPolicies.INSTANCE.invalidateDecisions();
         });
     }
     
@@ -242,22 +688,27 @@ public class VoipCallBlocker {
             blockList.remove(normalizedNumber);
             
             // Salvar alterações
-            preferences.edit()
+            invalidateSnapshot(preferences.edit()
                 .putStringSet(KEY_ALLOWED_NUMBERS, updatedList)
-                .putStringSet(KEY_BLOCKED_NUMBERS, blockList)
+                .putStringSet(KEY_BLOCKED_NUMBERS, blockList))
                 .apply();
             
             // Atualizar listas em memória
             allowedNumbers = updatedList;
             blockedNumbers = blockList;
             
+            // Registrar no journal de sincronização
+            SyncEngine.INSTANCE.recordListChange(false, normalizedNumber, true);
+            SyncEngine.INSTANCE.recordListChange(true, normalizedNumber, false);
+            
             // Limpar cache para este número
             clearCacheForNumber(normalizedNumber);
+            AccountPolicies.INSTANCE.invalidateDecisions();
         });
     }
     
     // Normalizar número para comparação consistente
-    private String normalizeNumber(String number) {
+    static String normalizeNumber(String number) {
         if (number == null) {
             return "";
         }
@@ -277,9 +728,8 @@ public class VoipCallBlocker {
             // Não podemos modificar o cache durante iteração, então coletamos chaves primeiro
             Set<String> keysToRemove = new HashSet<>();
             
-            for (int i = 0; i < blockDecisionCache.size(); i++) {
-                String key = blockDecisionCache.toString();
-                if (key != null && key.contains(number)) {
+            for (String key : blockDecisionCache.snapshot().keySet()) {
+                if (key.contains(number)) {
                     keysToRemove.add(key);
                 }
             }
@@ -291,8 +741,18 @@ public class VoipCallBlocker {
         }
     }
     
-    // Limpar todo o cache
+    // Descartar só as decisões em memória, mantendo o snapshot persistido: para dados externos
+    // às listas (ex.: números confiáveis do detector de spoofing), recarregados a cada início
+    public void evictCache() {
+        blockDecisionCache.evictAll();
+    }
+    
+    // Limpar todo o cache (também as decisões em cache de cada linha, ver AccountPolicies)
     public void clearCache() {
         blockDecisionCache.evictAll();
+        AccountPolicies.INSTANCE.invalidateDecisions();
+        if (preferences != null) {
+            backgroundExecutor.execute(() -> invalidateSnapshot(preferences.edit()).apply());
+        }
     }
 }
\ No newline at end of file
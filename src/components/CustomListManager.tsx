@@ -3,6 +3,7 @@ import { Card, CardContent, CardHeader, CardTitle, Button, Input, Select, Select
 import { Trash2, Plus } from "lucide-react";
 import { SectionImage } from "./SectionImage";
 import { memo, useCallback, useState } from "react";
+import { DigitPattern } from "@/lib/digitPattern";
 
 interface CustomListManagerProps {
   entries: CustomListEntry[];
@@ -59,12 +60,18 @@ function CustomListManagerComponent({
   className 
 }: CustomListManagerProps) {
   const [value, setValue] = useState("");
-  const [type, setType] = useState<"phone" | "ip" | "pattern">("phone");
+  const [type, setType] = useState<CustomListEntry["type"]>("phone");
   const [isBlocked, setIsBlocked] = useState(true);
+  const [error, setError] = useState<string | null>(null);
 
   const handleAddEntry = useCallback(() => {
     if (!value.trim()) return;
     
+    // Padrões fora do dialeto seguro (grupos, retroreferências...) são recusados na entrada
+    const patternError = type === "pattern" ? DigitPattern.validate(value.trim()) : null;
+    setError(patternError);
+    if (patternError) return;
+    
     onAddEntry({
       value: value.trim(),
       type,
@@ -92,9 +99,12 @@ function CustomListManagerComponent({
           <div className="flex flex-col gap-3">
             <div className="flex gap-2">
               <Input
-                placeholder="Número ou IP"
+                placeholder={type === "range" ? "+55 11 4000-XXXX ou início..fim" : "Número ou IP"}
                 value={value}
-                onChange={(e) => setValue(e.target.value)}
+                onChange={(e) => {
+                  setValue(e.target.value);
+                  setError(null);
+                }}
                 onKeyDown={handleKeyDown}
                 className="flex-1"
               />
@@ -109,10 +119,13 @@ function CustomListManagerComponent({
                   <SelectItem value="phone">Telefone</SelectItem>
                   <SelectItem value="ip">IP</SelectItem>
                   <SelectItem value="pattern">Padrão</SelectItem>
+                  <SelectItem value="range">Faixa</SelectItem>
                 </SelectContent>
               </Select>
             </div>
             
+            {error && <p className="text-xs text-neonPink">Padrão inválido: {error}</p>}
+            
             <div className="flex items-center justify-between">
               <div className="flex items-center gap-2">
                 <Switch 
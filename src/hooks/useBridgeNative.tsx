@@ -1,6 +1,11 @@
 import { useCallback, useEffect, useState } from 'react';
 import { Capacitor } from '@capacitor/core';
 import { Platform } from '@/lib/utils';
+import { downloadCustomList, uploadCustomList } from '@/lib/bulkTransfer';
+import { AccountPolicy, PhoneAccountInfo } from '@/types';
+
+// A partir deste tamanho a lista personalizada cruza a ponte como registros binários
+const BULK_TRANSFER_THRESHOLD = 1000;
 
 export function useBridgeNative() {
   const [hasPermissions, setHasPermissions] = useState(false);
@@ -28,14 +33,84 @@ export function useBridgeNative() {
       return Promise.resolve();
     },
 
-    // Atualiza a lista personalizada
+    // Atualiza a lista personalizada (listas grandes vão em lote binário, sem JSON por entrada)
     updateCustomList: async (list: any[]) => {
       if (Capacitor.isNativePlatform()) {
+        if (list.length >= BULK_TRANSFER_THRESHOLD) {
+          return uploadCustomList(Capacitor.Plugins.CallSettingsPlugin, list);
+        }
         return Capacitor.Plugins.CallSettingsPlugin.updateCustomList({ list });
       }
       return Promise.resolve();
     },
 
+    // Lê a lista personalizada aplicada no nativo (arquivo binário lido direto pela WebView)
+    exportCustomList: async () => {
+      if (Capacitor.isNativePlatform()) {
+        return downloadCustomList(Capacitor.Plugins.CallSettingsPlugin, async path => {
+          const response = await fetch(Capacitor.convertFileSrc(path));
+          return response.arrayBuffer();
+        });
+      }
+      return Promise.resolve([]);
+    },
+
+    // Lista as linhas do aparelho (SIMs e contas SIP) e indica quais têm política própria
+    getPhoneAccounts: async (): Promise<PhoneAccountInfo[]> => {
+      if (Capacitor.isNativePlatform()) {
+        const { ids = [], labels = [], addresses = [], configured = [] } =
+          await Capacitor.Plugins.CallSettingsPlugin.getPhoneAccounts();
+        return ids.map((id: string, i: number) => ({
+          id,
+          label: labels[i] ?? '',
+          address: addresses[i] ?? '',
+          configured: configured.includes(id)
+        }));
+      }
+      return Promise.resolve([]);
+    },
+
+    // Define a política de uma linha (substitui a anterior); devolve as entradas recusadas
+    setAccountPolicy: async (policy: AccountPolicy) => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.setAccountPolicy(policy);
+      }
+      return Promise.resolve({ success: false, rejected: 0 });
+    },
+
+    // Remove a política de uma linha, que volta às configurações e regras globais
+    removeAccountPolicy: async (accountId: string) => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.removeAccountPolicy({ accountId });
+      }
+      return Promise.resolve({ success: false });
+    },
+
+    // Configura a detecção de números que imitam o prefixo do próprio usuário
+    configureNeighborSpoofing: async (enable: boolean, ownNumbers?: string[], minSharedDigits?: number) => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.configureNeighborSpoofing({ enable, ownNumbers, minSharedDigits });
+      }
+      return Promise.resolve();
+    },
+
+    // Define o remoto da sincronização nativa ("file://..." ou "https://..."; null desativa)
+    configureSync: async (url: string | null) => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.configureSync({ url });
+      }
+      return Promise.resolve();
+    },
+
+    // Antecipa a sincronização das listas nativas, que roda assim que houver rede
+    // (o resultado fica nas estatísticas de manutenção, getMaintenanceStats)
+    syncNow: async () => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.syncNow();
+      }
+      return Promise.resolve();
+    },
+
     // Verifica se tem permissões necessárias
     checkPermissions: async () => {
       if (Capacitor.isNativePlatform()) {
@@ -82,6 +157,38 @@ export function useBridgeNative() {
         return Capacitor.Plugins.CallSettingsPlugin.requestBatteryOptimizationExemption();
       }
       return Promise.resolve({ success: false });
+    },
+    
+    // Obtém métricas da triagem por caminho de decisão (cache, STIR/SHAKEN, pipeline completo)
+    getScreeningMetrics: async () => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.getScreeningMetrics();
+      }
+      return Promise.resolve({});
+    },
+
+    // Instala um modelo de spam (binário SPM1 em base64); vale imediatamente, sem reiniciar o serviço
+    installSpamModel: async (data: string) => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.installSpamModel({ data });
+      }
+      return Promise.resolve({ success: false });
+    },
+
+    // Obtém estatísticas das janelas de manutenção (wakeups e CPU por tarefa)
+    getMaintenanceStats: async () => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.getMaintenanceStats();
+      }
+      return Promise.resolve({});
+    },
+
+    // Eventos de chamadas triadas, publicados pelo processo de triagem enquanto o app está aberto
+    onCallScreened: async (listener: (event: { number: string; blocked: boolean; reason?: string }) => void) => {
+      if (Capacitor.isNativePlatform()) {
+        return Capacitor.Plugins.CallSettingsPlugin.addListener('callScreened', listener);
+      }
+      return Promise.resolve({ remove: async () => {} });
     }
   };
 
@@ -194,7 +194,7 @@ export class SyncService {
       return data.map(item => ({
         id: item.id,
         value: item.value,
-        type: item.type as 'ip' | 'phone' | 'pattern',
+        type: item.type as CustomListEntry['type'],
         isBlocked: item.is_blocked,
         addedAt: item.added_at,
         notes: item.notes || undefined
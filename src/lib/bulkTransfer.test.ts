@@ -0,0 +1,114 @@
+import { describe, it, expect } from 'vitest';
+import {
+  BulkFormatError,
+  BulkTransferPlugin,
+  decodeCustomList,
+  encodeCustomList,
+  downloadCustomList,
+  uploadCustomList
+} from './bulkTransfer';
+
+// Plugin simulado: guarda os blocos recebidos como o arquivo nativo
+function createPlugin() {
+  const files = new Map<string, Uint8Array>();
+  const released: string[] = [];
+  let nextHandle = 0;
+
+  const plugin: BulkTransferPlugin = {
+    async beginBulkTransfer() {
+      const handle = String(nextHandle++).padStart(16, '0');
+      files.set(handle, new Uint8Array(0));
+      return { handle };
+    },
+    async appendBulkChunk({ handle, offset, data }) {
+      const current = files.get(handle)!;
+      if (offset !== current.length) throw new Error('Bloco fora de ordem');
+      const chunk = Uint8Array.from(atob(data), c => c.charCodeAt(0));
+      const next = new Uint8Array(current.length + chunk.length);
+      next.set(current);
+      next.set(chunk, current.length);
+      files.set(handle, next);
+      return { size: next.length };
+    },
+    async commitCustomList({ handle }) {
+      const records = decodeCustomList(files.get(handle)!);
+      files.delete(handle);
+      return { success: true, count: records.length, rejected: 0 };
+    },
+    async exportCustomList() {
+      const handle = 'export0000000000';
+      const bytes = encodeCustomList([{ type: 'phone', value: '+5511999990000', isBlocked: true }]);
+      files.set(handle, bytes);
+      return { handle, path: `/cache/bulk/${handle}.blk`, count: 1 };
+    },
+    async releaseBulkTransfer({ handle }) {
+      released.push(handle);
+      files.delete(handle);
+    }
+  };
+  return { plugin, files, released };
+}
+
+describe('bulkTransfer', () => {
+  it('deve empacotar e ler a lista sem perder entradas', () => {
+    const entries = [
+      { type: 'phone' as const, value: '+5511999990000', isBlocked: true },
+      { type: 'range' as const, value: '+55 11 4000-XXXX', isBlocked: false },
+      { type: 'pattern' as const, value: '^0800', isBlocked: true },
+      { type: 'ip' as const, value: '192.168.0.1', isBlocked: true },
+      { type: 'phone' as const, value: 'número ☎', isBlocked: false }
+    ];
+
+    expect(decodeCustomList(encodeCustomList(entries))).toEqual(entries);
+  });
+
+  it('deve gerar registros compactos', () => {
+    const bytes = encodeCustomList([{ type: 'phone', value: '+5511999990000', isBlocked: true }]);
+
+    // Cabeçalho de 12 bytes + 3 bytes de registro + 14 bytes de valor
+    expect(bytes.length).toBe(29);
+  });
+
+  it('deve rejeitar arquivos truncados ou de outro formato', () => {
+    const bytes = encodeCustomList([{ type: 'phone', value: '+5511999990000', isBlocked: true }]);
+
+    expect(() => decodeCustomList(bytes.subarray(0, bytes.length - 1))).toThrow(BulkFormatError);
+    expect(() => decodeCustomList(new Uint8Array(12))).toThrow(BulkFormatError);
+  });
+
+  it('deve enviar listas grandes em blocos ordenados', async () => {
+    const { plugin, files } = createPlugin();
+    const entries = Array.from({ length: 10000 }, (_, i) => ({
+      type: 'phone' as const,
+      value: `+55119${String(i).padStart(8, '0')}`,
+      isBlocked: i % 2 === 0
+    }));
+
+    const result = await uploadCustomList(plugin, entries, 4096);
+
+    expect(result).toEqual({ count: 10000, rejected: 0 });
+    expect(files.size).toBe(0);
+  });
+
+  it('deve liberar a transferência quando um bloco falha', async () => {
+    const { plugin, released } = createPlugin();
+    plugin.appendBulkChunk = async () => {
+      throw new Error('falha');
+    };
+
+    await expect(uploadCustomList(plugin, [{ type: 'phone', value: '1', isBlocked: true }])).rejects.toThrow('falha');
+    expect(released).toHaveLength(1);
+  });
+
+  it('deve ler a lista exportada pelo nativo e liberar o arquivo', async () => {
+    const { plugin, files, released } = createPlugin();
+
+    const records = await downloadCustomList(plugin, async () => {
+      const bytes = files.get('export0000000000')!;
+      return bytes.buffer.slice(bytes.byteOffset, bytes.byteOffset + bytes.byteLength) as ArrayBuffer;
+    });
+
+    expect(records).toEqual([{ type: 'phone', value: '+5511999990000', isBlocked: true }]);
+    expect(released).toEqual(['export0000000000']);
+  });
+});
@@ -0,0 +1,153 @@
+/**
+ * Transferência em lote de listas grandes pela ponte do Capacitor
+ *
+ * A lista é empacotada em registros binários (mesmo formato do BulkTransfer nativo) e enviada
+ * em blocos base64 para um arquivo privado do app; só o handle volta pela ponte. No sentido
+ * inverso, o nativo grava o arquivo e o app o lê como ArrayBuffer via Capacitor.convertFileSrc,
+ * sem JSON com um objeto por entrada em nenhum dos lados.
+ *
+ * Formato (big-endian): "BLK1", tipo de conteúdo (1 byte) + 3 reservados, quantidade (uint32);
+ * cada registro: flags (tipo nos 2 bits inferiores, 0x80 = bloqueado), tamanho (uint16), UTF-8.
+ */
+import { CustomListEntry } from '@/types';
+
+export const BULK_MAGIC = 0x424c4b31; // "BLK1"
+export const KIND_CUSTOM_LIST = 1;
+
+// Tamanho de cada bloco enviado (antes do base64)
+export const DEFAULT_CHUNK_SIZE = 384 * 1024;
+
+const HEADER_SIZE = 12;
+const FLAG_BLOCKED = 0x80;
+const TYPE_MASK = 0x03;
+const MAX_VALUE_BYTES = 0xffff;
+const ENTRY_TYPES: CustomListEntry['type'][] = ['phone', 'range', 'pattern', 'ip'];
+
+export interface BulkRecord {
+  type: CustomListEntry['type'];
+  value: string;
+  isBlocked: boolean;
+}
+
+export class BulkFormatError extends Error {}
+
+// Métodos nativos usados pela transferência (subconjunto do CallSettingsPlugin)
+export interface BulkTransferPlugin {
+  beginBulkTransfer(): Promise<{ handle: string }>;
+  appendBulkChunk(options: { handle: string; offset: number; data: string }): Promise<{ size: number }>;
+  commitCustomList(options: { handle: string }): Promise<{ success: boolean; count: number; rejected: number }>;
+  exportCustomList(): Promise<{ handle: string; path: string; count: number }>;
+  releaseBulkTransfer(options: { handle: string }): Promise<void>;
+}
+
+/**
+ * Empacota as entradas da lista personalizada
+ * @throws BulkFormatError se algum valor passar de 65535 bytes em UTF-8
+ */
+export function encodeCustomList(entries: Pick<CustomListEntry, 'type' | 'value' | 'isBlocked'>[]): Uint8Array {
+  // Limite superior: cada unidade UTF-16 ocupa no máximo 3 bytes em UTF-8
+  let capacity = HEADER_SIZE;
+  for (const entry of entries) capacity += 3 + entry.value.length * 3;
+
+  const bytes = new Uint8Array(capacity);
+  const view = new DataView(bytes.buffer);
+  const encoder = new TextEncoder();
+  view.setUint32(0, BULK_MAGIC);
+  view.setUint8(4, KIND_CUSTOM_LIST);
+  view.setUint32(8, entries.length);
+
+  let offset = HEADER_SIZE;
+  for (const entry of entries) {
+    const type = ENTRY_TYPES.indexOf(entry.type);
+    if (type < 0) throw new BulkFormatError(`Tipo de entrada desconhecido: ${entry.type}`);
+    const { written } = encoder.encodeInto(entry.value, bytes.subarray(offset + 3));
+    if (written > MAX_VALUE_BYTES) throw new BulkFormatError('Valor longo demais para a transferência');
+    view.setUint8(offset, type | (entry.isBlocked ? FLAG_BLOCKED : 0));
+    view.setUint16(offset + 1, written);
+    offset += 3 + written;
+  }
+  return bytes.subarray(0, offset);
+}
+
+/**
+ * Lê um arquivo de lista personalizada gerado pelo nativo
+ * @throws BulkFormatError se o conteúdo estiver truncado ou não for uma lista
+ */
+export function decodeCustomList(buffer: ArrayBuffer | Uint8Array): BulkRecord[] {
+  const bytes = buffer instanceof Uint8Array ? buffer : new Uint8Array(buffer);
+  const view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+  if (bytes.length < HEADER_SIZE || view.getUint32(0) !== BULK_MAGIC) {
+    throw new BulkFormatError('Arquivo de transferência inválido');
+  }
+  if (view.getUint8(4) !== KIND_CUSTOM_LIST) {
+    throw new BulkFormatError(`Conteúdo inesperado na transferência: ${view.getUint8(4)}`);
+  }
+
+  const count = view.getUint32(8);
+  const decoder = new TextDecoder();
+  const records: BulkRecord[] = [];
+  let offset = HEADER_SIZE;
+  for (let i = 0; i < count; i++) {
+    if (offset + 3 > bytes.length) throw new BulkFormatError('Transferência incompleta');
+    const flags = view.getUint8(offset);
+    const length = view.getUint16(offset + 1);
+    const end = offset + 3 + length;
+    if (end > bytes.length) throw new BulkFormatError('Transferência incompleta');
+    records.push({
+      type: ENTRY_TYPES[flags & TYPE_MASK],
+      value: decoder.decode(bytes.subarray(offset + 3, end)),
+      isBlocked: (flags & FLAG_BLOCKED) !== 0
+    });
+    offset = end;
+  }
+  if (offset !== bytes.length) throw new BulkFormatError('Dados após o último registro');
+  return records;
+}
+
+// Base64 de um bloco sem montar uma string do tamanho da lista inteira
+export function toBase64(bytes: Uint8Array): string {
+  let binary = '';
+  for (let i = 0; i < bytes.length; i += 0x8000) {
+    binary += String.fromCharCode.apply(null, Array.from(bytes.subarray(i, i + 0x8000)));
+  }
+  return btoa(binary);
+}
+
+/**
+ * Envia a lista personalizada em blocos binários e a aplica no nativo
+ */
+export async function uploadCustomList(
+  plugin: BulkTransferPlugin,
+  entries: Pick<CustomListEntry, 'type' | 'value' | 'isBlocked'>[],
+  chunkSize = DEFAULT_CHUNK_SIZE
+): Promise<{ count: number; rejected: number }> {
+  const bytes = encodeCustomList(entries);
+  const { handle } = await plugin.beginBulkTransfer();
+  try {
+    for (let offset = 0; offset < bytes.length; offset += chunkSize) {
+      await plugin.appendBulkChunk({ handle, offset, data: toBase64(bytes.subarray(offset, offset + chunkSize)) });
+    }
+  } catch (error) {
+    await plugin.releaseBulkTransfer({ handle }).catch(() => undefined);
+    throw error;
+  }
+  // O nativo descarta o arquivo depois de aplicá-lo
+  const { count, rejected } = await plugin.commitCustomList({ handle });
+  return { count, rejected };
+}
+
+/**
+ * Lê a lista personalizada atual do nativo
+ * @param readFile Lê o arquivo nativo (na ponte real: fetch de Capacitor.convertFileSrc(path))
+ */
+export async function downloadCustomList(
+  plugin: BulkTransferPlugin,
+  readFile: (path: string) => Promise<ArrayBuffer>
+): Promise<BulkRecord[]> {
+  const { handle, path } = await plugin.exportCustomList();
+  try {
+    return decodeCustomList(await readFile(path));
+  } finally {
+    await plugin.releaseBulkTransfer({ handle });
+  }
+}
@@ -129,4 +129,52 @@ describe('CallBlockingEngine', () => {
     expect(result.blocked).toBe(false);
     expect(result.reason).toBe(null);
   });
+
+  it('deve manter a precedência da lista personalizada na ordem de regras', () => {
+    const order = CallBlockingEngine.getRuleOrder().map(stage => stage.name);
+
+    expect(order.slice(0, 3)).toEqual(['block_all', 'custom_phone', 'custom_ip']);
+    expect(order).toHaveLength(8);
+  });
+
+  it('deve reportar o mesmo motivo independentemente do tráfego anterior', () => {
+    // Tráfego em que só a verificação de servidor desconhecido bloqueia
+    for (let i = 0; i < 600; i++) {
+      CallBlockingEngine.shouldBlockCall('+5511777777777', undefined, true, defaultSettings, customList);
+    }
+
+    // Número inválido e sem servidor: a validação do número tem precedência fixa
+    const result = CallBlockingEngine.shouldBlockCall('123', undefined, true, defaultSettings, customList);
+
+    expect(result.blocked).toBe(true);
+    expect(result.reason).toBe('no_valid_number');
+    expect(CallBlockingEngine.getRuleOrder().map(stage => stage.name)).toEqual([
+      'block_all', 'custom_phone', 'custom_ip',
+      'anonymous', 'invalid_number', 'suspicious_ip', 'unknown_server', 'spam_pattern'
+    ]);
+  });
+
+  it('deve bloquear números dentro de faixas personalizadas', () => {
+    const rangeList: CustomListEntry[] = [
+      ...customList,
+      {
+        id: '4',
+        value: '+55 11 4000-XXXX',
+        type: 'range',
+        isBlocked: true,
+        addedAt: Date.now()
+      }
+    ];
+
+    const result = CallBlockingEngine.shouldBlockCall(
+      '+551140001234',
+      undefined,
+      false,
+      defaultSettings,
+      rangeList
+    );
+
+    expect(result.blocked).toBe(true);
+    expect(result.reason).toBe('user_blocked');
+  });
 });
\ No newline at end of file
@@ -1,6 +1,163 @@
 import { BlockSettings, CustomListEntry } from '@/types';
 import { phoneUtils } from './phoneUtils';
 import { ipUtils } from './ipUtils';
+import { RulePipeline, RuleStageStats } from './rulePipeline';
+import { NumericRange, RangeIndex, parseRangeValue } from './rangeIndex';
+import { patternEntryTest } from './digitPattern';
+
+type BlockReason = 'anonymous' | 'unknown_server' | 'no_valid_number' | 'suspicious_ip' | 'user_blocked';
+
+interface BlockResult {
+  blocked: boolean;
+  reason: BlockReason | null;
+}
+
+/**
+ * Lista personalizada pré-indexada: busca exata O(1) por telefone e IP, O(log n) por faixa
+ */
+interface CompiledCustomList {
+  phones: Map<string, CustomListEntry>;
+  patterns: CompiledPattern[];
+  ips: Map<string, CustomListEntry>;
+  allowedRanges: RangeIndex;
+  blockedRanges: RangeIndex;
+}
+
+interface CompiledPattern {
+  entry: CustomListEntry;
+  test: (normalizedNumber: string) => boolean;
+}
+
+interface ScreeningInput {
+  phoneNumber?: string;
+  normalizedNumber?: string;
+  sourceIP?: string;
+  isVoIP: boolean;
+  settings: BlockSettings;
+  customList: CompiledCustomList;
+}
+
+// Índices compilados por instância de lista (as listas são substituídas, nunca mutadas)
+const compiledLists = new WeakMap<CustomListEntry[], CompiledCustomList>();
+
+function compileCustomList(customList: CustomListEntry[]): CompiledCustomList {
+  let compiled = compiledLists.get(customList);
+  if (compiled) {
+    return compiled;
+  }
+
+  const phones = new Map<string, CustomListEntry>();
+  const patterns: CompiledPattern[] = [];
+  const ips = new Map<string, CustomListEntry>();
+  const allowedRanges: NumericRange[] = [];
+  const blockedRanges: NumericRange[] = [];
+  for (const entry of customList) {
+    // A primeira entrada vence, como no find() original
+    if (entry.type === 'phone') {
+      const key = phoneUtils.normalizePhoneNumber(entry.value);
+      if (!phones.has(key)) phones.set(key, entry);
+    } else if (entry.type === 'pattern') {
+      // Entradas antigas fora do dialeto seguro (ex.: "+5511") continuam valendo como trecho literal
+      patterns.push({ entry, test: patternEntryTest(entry.value) });
+    } else if (entry.type === 'ip') {
+      if (!ips.has(entry.value)) ips.set(entry.value, entry);
+    } else if (entry.type === 'range') {
+      // Faixas sobrepostas são mescladas pelo índice; valores inválidos são ignorados
+      const range = parseRangeValue(entry.value);
+      if (range) (entry.isBlocked ? blockedRanges : allowedRanges).push(range);
+    }
+  }
+  compiled = {
+    phones,
+    patterns,
+    ips,
+    allowedRanges: RangeIndex.build(allowedRanges),
+    blockedRanges: RangeIndex.build(blockedRanges)
+  };
+  compiledLists.set(customList, compiled);
+  return compiled;
+}
+
+function fromEntry(entry: CustomListEntry, blockReason: BlockReason): BlockResult {
+  return { blocked: entry.isBlocked, reason: entry.isBlocked ? blockReason : null };
+}
+
+/**
+ * Estágios de triagem. Tiers definem a precedência:
+ * 0 - bloqueio total; 1 - lista personalizada de telefones (pode permitir);
+ * 2 - lista personalizada de IPs (pode permitir); 3 a 7 - verificações gerais, uma por tier.
+ * Cada verificação geral informa um motivo diferente: compartilhar um tier faria o motivo
+ * reportado depender da ordem adaptativa, ou seja, do tráfego anterior.
+ */
+const screeningPipeline = new RulePipeline<ScreeningInput, BlockResult>([
+  {
+    name: 'block_all',
+    tier: 0,
+    evaluate: ({ settings }) => settings.blockAll ? { blocked: true, reason: 'user_blocked' } : null
+  },
+  {
+    name: 'custom_phone',
+    tier: 1,
+    evaluate: ({ normalizedNumber, customList }) => {
+      if (!normalizedNumber) return null;
+
+      // Correspondência exata tem precedência sobre faixas, e faixas sobre padrões
+      const exactMatch = customList.phones.get(normalizedNumber);
+      if (exactMatch) return fromEntry(exactMatch, 'user_blocked');
+
+      if (customList.allowedRanges.contains(normalizedNumber)) return { blocked: false, reason: null };
+      if (customList.blockedRanges.contains(normalizedNumber)) return { blocked: true, reason: 'user_blocked' };
+
+      const patternMatch = customList.patterns.find(({ test }) => test(normalizedNumber));
+      return patternMatch ? fromEntry(patternMatch.entry, 'user_blocked') : null;
+    }
+  },
+  {
+    name: 'custom_ip',
+    tier: 2,
+    evaluate: ({ sourceIP, isVoIP, customList }) => {
+      if (!sourceIP || !isVoIP) return null;
+      const ipMatch = customList.ips.get(sourceIP);
+      return ipMatch ? fromEntry(ipMatch, 'suspicious_ip') : null;
+    }
+  },
+  {
+    name: 'anonymous',
+    tier: 3,
+    evaluate: ({ phoneNumber, settings }) =>
+      !phoneNumber && settings.blockAnonymous ? { blocked: true, reason: 'anonymous' } : null
+  },
+  {
+    name: 'invalid_number',
+    tier: 4,
+    evaluate: ({ phoneNumber, settings }) =>
+      phoneNumber && settings.blockNoValidNumber && !phoneUtils.isValidPhoneNumber(phoneNumber)
+        ? { blocked: true, reason: 'no_valid_number' }
+        : null
+  },
+  {
+    name: 'suspicious_ip',
+    tier: 5,
+    evaluate: ({ sourceIP, isVoIP, settings }) =>
+      sourceIP && isVoIP && settings.blockSuspiciousIP && ipUtils.isSuspiciousIP(sourceIP)
+        ? { blocked: true, reason: 'suspicious_ip' }
+        : null
+  },
+  {
+    name: 'unknown_server',
+    tier: 6,
+    evaluate: ({ sourceIP, isVoIP, settings }) =>
+      isVoIP && settings.blockUnknownServers && (!sourceIP || !ipUtils.isValidIP(sourceIP))
+        ? { blocked: true, reason: 'unknown_server' }
+        : null
+  },
+  {
+    name: 'spam_pattern',
+    tier: 7,
+    evaluate: ({ phoneNumber }) =>
+      phoneNumber && phoneUtils.hasSpamPattern(phoneNumber) ? { blocked: true, reason: 'user_blocked' } : null
+  }
+]);
 
 export class CallBlockingEngine {
   /**
@@ -11,6 +168,7 @@ export class CallBlockingEngine {
    * @param settings Configurações de bloqueio
    * @param customList Lista personalizada de bloqueio/permissão
    * @returns Objeto indicando se a chamada deve ser bloqueada e o motivo
+   * Quando mais de uma verificação geral bloqueia, o motivo é o da de menor tier
    */
   public static shouldBlockCall(
     phoneNumber?: string,
@@ -24,89 +182,25 @@ export class CallBlockingEngine {
       blockUnknownServers: true
     },
     customList: CustomListEntry[] = []
-  ): { blocked: boolean; reason: 'anonymous' | 'unknown_server' | 'no_valid_number' | 'suspicious_ip' | 'user_blocked' | null } {
-    // Verificar modo offline - sempre usar configurações locais
+  ): BlockResult {
+    const result = screeningPipeline.evaluate({
+      phoneNumber,
+      normalizedNumber: phoneNumber ? phoneUtils.normalizePhoneNumber(phoneNumber) : undefined,
+      sourceIP,
+      isVoIP,
+      settings,
+      customList: compileCustomList(customList)
+    });
     
-    // 1. Verificar se o bloqueio total está ativado
-    if (settings.blockAll) {
-      return { blocked: true, reason: 'user_blocked' };
-    }
-    
-    // 2. Verificar lista personalizada (tem prioridade sobre as configurações gerais)
-    // 2.1 Verificar número de telefone na lista personalizada
-    if (phoneNumber) {
-      const normalizedNumber = phoneUtils.normalizePhoneNumber(phoneNumber);
-      
-      // Verificar correspondência exata
-      const exactMatch = customList.find(entry => 
-        entry.type === 'phone' && 
-        phoneUtils.normalizePhoneNumber(entry.value) === normalizedNumber
-      );
-      
-      if (exactMatch) {
-        return { 
-          blocked: exactMatch.isBlocked, 
-          reason: exactMatch.isBlocked ? 'user_blocked' : null 
-        };
-      }
-      
-      // Verificar correspondência de padrão
-      const patternMatch = customList.find(entry => 
-        entry.type === 'pattern' && 
-        normalizedNumber.includes(entry.value)
-      );
-      
-      if (patternMatch) {
-        return { 
-          blocked: patternMatch.isBlocked, 
-          reason: patternMatch.isBlocked ? 'user_blocked' : null 
-        };
-      }
-    }
-    
-    // 2.2 Verificar IP na lista personalizada (para chamadas VoIP)
-    if (sourceIP && isVoIP) {
-      const ipMatch = customList.find(entry => 
-        entry.type === 'ip' && 
-        entry.value === sourceIP
-      );
-      
-      if (ipMatch) {
-        return { 
-          blocked: ipMatch.isBlocked, 
-          reason: ipMatch.isBlocked ? 'suspicious_ip' : null 
-        };
-      }
-    }
-    
-    // 3. Verificar configurações gerais
-    // 3.1 Verificar chamadas anônimas
-    if (!phoneNumber && settings.blockAnonymous) {
-      return { blocked: true, reason: 'anonymous' };
-    }
-    
-    // 3.2 Verificar números inválidos
-    if (phoneNumber && settings.blockNoValidNumber && !phoneUtils.isValidPhoneNumber(phoneNumber)) {
-      return { blocked: true, reason: 'no_valid_number' };
-    }
-    
-    // 3.3 Verificar IPs suspeitos (para chamadas VoIP)
-    if (sourceIP && isVoIP && settings.blockSuspiciousIP && ipUtils.isSuspiciousIP(sourceIP)) {
-      return { blocked: true, reason: 'suspicious_ip' };
-    }
-    
-    // 3.4 Verificar servidores desconhecidos (para chamadas VoIP)
-    if (isVoIP && settings.blockUnknownServers && (!sourceIP || !ipUtils.isValidIP(sourceIP))) {
-      return { blocked: true, reason: 'unknown_server' };
-    }
-    
-    // 4. Verificar padrões de spam em números de telefone
-    if (phoneNumber && phoneUtils.hasSpamPattern(phoneNumber)) {
-      return { blocked: true, reason: 'user_blocked' };
-    }
-    
-    // Se chegou até aqui, a chamada não deve ser bloqueada
-    return { blocked: false, reason: null };
+    // Se nenhum estágio decidiu, a chamada não deve ser bloqueada
+    return result ?? { blocked: false, reason: null };
+  }
+  
+  /**
+   * Ordem atual dos estágios de triagem com estatísticas, para depuração
+   */
+  public static getRuleOrder(): RuleStageStats[] {
+    return screeningPipeline.describeOrder();
   }
   
   /**
@@ -1,4 +1,19 @@
 import { CustomListEntry } from "@/types";
+import { parseRangeValue, numericKey } from "./rangeIndex";
+import { patternEntryTest } from "./digitPattern";
+
+// Avalia uma entrada do tipo "pattern" no dialeto linear (sem RegExp, imune a ReDoS), com o
+// mesmo fallback literal da triagem e compilada uma única vez por padrão
+function matchesPattern(pattern: string, value: string): boolean {
+  return patternEntryTest(pattern)(value);
+}
+
+// Verifica se o valor está dentro da faixa de uma entrada do tipo "range"
+function matchesRange(rangeValue: string, value: string): boolean {
+  const range = parseRangeValue(rangeValue);
+  const key = numericKey(value);
+  return !!range && !!key && key.digits === range.digits && key.value >= range.start && key.value <= range.end;
+}
 
 /**
  * Classe para gerenciar entradas personalizadas com métodos otimizados
@@ -57,13 +72,9 @@ export class CustomListManager {
         case 'ip':
           return entry.value.toLowerCase() === normalizedValue;
         case 'pattern':
-          try {
-            const regex = new RegExp(entry.value, 'i');
-            return regex.test(normalizedValue);
-          } catch (e) {
-            console.error('Padrão de regex inválido:', entry.value);
-            return false;
-          }
+          return matchesPattern(entry.value, normalizedValue);
+        case 'range':
+          return matchesRange(entry.value, normalizedValue);
       }
     });
   }
@@ -85,13 +96,9 @@ export class CustomListManager {
         case 'ip':
           return entry.value.toLowerCase() === normalizedValue;
         case 'pattern':
-          try {
-            const regex = new RegExp(entry.value, 'i');
-            return regex.test(normalizedValue);
-          } catch (e) {
-            console.error('Padrão de regex inválido:', entry.value);
-            return false;
-          }
+          return matchesPattern(entry.value, normalizedValue);
+        case 'range':
+          return matchesRange(entry.value, normalizedValue);
       }
     });
   }
@@ -0,0 +1,48 @@
+import { describe, it, expect } from 'vitest';
+import { DigitPattern, patternEntryTest } from './digitPattern';
+
+describe('DigitPattern', () => {
+  it('deve aceitar os padrões das regras de segurança', () => {
+    expect(DigitPattern.compile('^0800').test('08001234567')).toBe(true);
+    expect(DigitPattern.compile('^\\+55115[0-9]{3}').test('+5511512345678')).toBe(true);
+    expect(DigitPattern.compile('^\\+55115[0-9]{3}').test('+5511412345678')).toBe(false);
+    expect(DigitPattern.compile('^\\+[0-9]{5,7}$').test('+123456')).toBe(true);
+    expect(DigitPattern.compile('^\\+[0-9]{5,7}$').test('+12345678')).toBe(false);
+    expect(DigitPattern.compile('^192\\.168\\.0\\.').test('192.168.0.10')).toBe(true);
+  });
+
+  it('deve buscar em qualquer posição quando não há âncoras', () => {
+    const pattern = DigitPattern.compile('4002');
+    expect(pattern.test('+551140028922')).toBe(true);
+    expect(pattern.test('+551140038922')).toBe(false);
+  });
+
+  it('deve suportar alternativas, classes negadas e repetições', () => {
+    const pattern = DigitPattern.compile('^0300|^0[89]00[^0]\\d+$');
+    expect(pattern.test('0300123')).toBe(true);
+    expect(pattern.test('09001999')).toBe(true);
+    expect(pattern.test('09000999')).toBe(false);
+  });
+
+  it('deve rejeitar construções fora do dialeto', () => {
+    expect(DigitPattern.validate('(a+)+$')).not.toBe(null);
+    expect(DigitPattern.validate('^(.)\\1{4,}')).not.toBe(null);
+    expect(DigitPattern.validate('+5511')).not.toBe(null);
+    expect(DigitPattern.validate('[a-z]')).not.toBe(null);
+    expect(DigitPattern.validate('\\d{99}')).not.toBe(null);
+    expect(DigitPattern.validate('^\\d{2,}$')).toBe(null);
+  });
+
+  it('deve interromper a avaliação ao esgotar o orçamento de passos', () => {
+    const pattern = DigitPattern.compile('\\d*'.repeat(30) + '#$');
+    expect(pattern.match('1'.repeat(10000))).toBe('budget_exceeded');
+    expect(pattern.test('1'.repeat(10000))).toBe(false);
+  });
+
+  it('deve reaproveitar o teste das entradas e tratar padrões fora do dialeto como trecho literal', () => {
+    expect(patternEntryTest('^0800')).toBe(patternEntryTest('^0800'));
+    expect(patternEntryTest('^0800')('08001234567')).toBe(true);
+    expect(patternEntryTest('+5511')('+5511987654321')).toBe(true);
+    expect(patternEntryTest('+5511')('+5521987654321')).toBe(false);
+  });
+});
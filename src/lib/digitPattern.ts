@@ -0,0 +1,308 @@
+/**
+ * Padrões de número em tempo linear, seguros contra backtracking catastrófico (ReDoS)
+ *
+ * Mesmo dialeto do DigitPattern nativo: alfabeto de números (dígitos, '+', '.', '*', '#'),
+ * ^ e $ nas pontas, '|' no nível superior, '.', \d, classes como [0-9] e [^0], escapes
+ * \+ \. \* \# e quantificadores ? * + {n} {n,} {n,m} sobre um único átomo.
+ * Grupos, retroreferências e lookarounds são rejeitados na compilação.
+ *
+ * Cada alternativa vira um autômato de posições (até 31 estados, um bit por estado; o nativo
+ * aceita até 63, então todo padrão aceito aqui também é aceito no Android);
+ * a avaliação não retrocede e ainda é limitada por um orçamento de passos.
+ */
+
+export const DEFAULT_STEP_BUDGET = 4096;
+
+// Estados num inteiro de 32 bits: 31 posições + o estado de aceitação
+const MAX_POSITIONS = 31;
+const MAX_REPEAT = 32;
+const MAX_SOURCE_LENGTH = 256;
+
+const SYMBOL_COUNT = 15;
+const DIGITS = 0x3ff;
+const ANY = (1 << SYMBOL_COUNT) - 1;
+
+interface Program {
+  masks: number[];
+  stars: boolean[];
+  closures: number[];
+  acceptBit: number;
+  anchoredStart: boolean;
+  anchoredEnd: boolean;
+}
+
+export class PatternSyntaxError extends Error {}
+
+// Alfabeto: 0-9, '+', '.', '*', '#' e "outro"
+function symbol(code: number): number {
+  if (code >= 48 && code <= 57) return code - 48;
+  switch (code) {
+    case 43: return 10; // +
+    case 46: return 11; // .
+    case 42: return 12; // *
+    case 35: return 13; // #
+    default: return 14;
+  }
+}
+
+function isEscaped(source: string, index: number): boolean {
+  let backslashes = 0;
+  for (let i = index - 1; i >= 0 && source[i] === '\\'; i--) backslashes++;
+  return backslashes % 2 === 1;
+}
+
+// Divide nas barras verticais de nível superior (fora de classes e não escapadas)
+function splitAlternatives(source: string): string[] {
+  const parts: string[] = [];
+  let start = 0;
+  let inClass = false;
+  for (let i = 0; i < source.length; i++) {
+    const c = source[i];
+    if (c === '\\') {
+      i++;
+    } else if (c === '[') {
+      inClass = true;
+    } else if (c === ']') {
+      inClass = false;
+    } else if (c === '|' && !inClass) {
+      parts.push(source.slice(start, i));
+      start = i + 1;
+    }
+  }
+  parts.push(source.slice(start));
+  return parts;
+}
+
+function parseClass(body: string): number {
+  let negated = false;
+  let i = 0;
+  if (body[0] === '^') {
+    negated = true;
+    i = 1;
+  }
+  if (i >= body.length) throw new PatternSyntaxError('Classe vazia');
+
+  let mask = 0;
+  for (; i < body.length; i++) {
+    let c = body[i];
+    if (c === '\\' && i + 1 < body.length) {
+      c = body[++i];
+      if (c === 'd') {
+        mask |= DIGITS;
+        continue;
+      }
+    }
+    if (i + 2 < body.length && body[i + 1] === '-' && c >= '0' && c <= '9') {
+      const end = body[i + 2];
+      if (end < c || end > '9') throw new PatternSyntaxError(`Intervalo inválido na classe: ${c}-${end}`);
+      for (let d = c.charCodeAt(0); d <= end.charCodeAt(0); d++) mask |= 1 << symbol(d);
+      i += 2;
+    } else if ((c >= '0' && c <= '9') || '+.*#'.includes(c)) {
+      mask |= 1 << symbol(c.charCodeAt(0));
+    } else {
+      throw new PatternSyntaxError(`Caractere não suportado na classe: '${c}'`);
+    }
+  }
+  return negated ? ANY & ~mask : mask;
+}
+
+function compileAlternative(source: string): Program {
+  let from = 0;
+  let to = source.length;
+  const anchoredStart = source[0] === '^';
+  if (anchoredStart) from++;
+  const anchoredEnd = to > from && source[to - 1] === '$' && !isEscaped(source, to - 1);
+  if (anchoredEnd) to--;
+
+  const masks: number[] = [];
+  const stars: boolean[] = [];
+  const optional: boolean[] = [];
+
+  let i = from;
+  while (i < to) {
+    // Átomo
+    let mask: number;
+    const c = source[i];
+    if (c === '\\') {
+      if (i + 1 >= to) throw new PatternSyntaxError('Escape incompleto no fim do padrão');
+      const escaped = source[i + 1];
+      if (escaped === 'd') mask = DIGITS;
+      else if ('+.*#'.includes(escaped)) mask = 1 << symbol(escaped.charCodeAt(0));
+      else throw new PatternSyntaxError(`Escape não suportado: \\${escaped}`);
+      i += 2;
+    } else if (c === '[') {
+      const end = source.indexOf(']', i + 1);
+      if (end < 0 || end >= to) throw new PatternSyntaxError("Classe sem ']'");
+      mask = parseClass(source.slice(i + 1, end));
+      i = end + 1;
+    } else if (c === '.') {
+      mask = ANY;
+      i++;
+    } else if ((c >= '0' && c <= '9') || c === '#') {
+      mask = 1 << symbol(c.charCodeAt(0));
+      i++;
+    } else if (c === '(' || c === ')') {
+      throw new PatternSyntaxError('Grupos não são suportados');
+    } else if (c === '^' || c === '$') {
+      throw new PatternSyntaxError(`Âncora '${c}' só é permitida nas pontas`);
+    } else if ('?*+{'.includes(c)) {
+      throw new PatternSyntaxError(`Quantificador sem átomo na posição ${i - from}`);
+    } else {
+      throw new PatternSyntaxError(`Caractere não suportado: '${c}'`);
+    }
+
+    // Quantificador (max -1 = ilimitado)
+    let min = 1;
+    let max = 1;
+    const q = i < to ? source[i] : '';
+    if (q === '?') {
+      min = 0;
+      i++;
+    } else if (q === '*') {
+      min = 0;
+      max = -1;
+      i++;
+    } else if (q === '+') {
+      max = -1;
+      i++;
+    } else if (q === '{') {
+      const end = source.indexOf('}', i);
+      if (end < 0 || end >= to) throw new PatternSyntaxError("Quantificador sem '}'");
+      const text = source.slice(i, end + 1);
+      const match = /^\{(\d+)(,(\d*))?\}$/.exec(text);
+      if (!match) throw new PatternSyntaxError(`Quantificador inválido: ${text}`);
+      min = Number(match[1]);
+      max = match[2] === undefined ? min : match[3] === '' ? -1 : Number(match[3]);
+      if (min > MAX_REPEAT || max > MAX_REPEAT || (max !== -1 && max < min)) {
+        throw new PatternSyntaxError(`Quantificador inválido: ${text}`);
+      }
+      i = end + 1;
+    }
+    if (q && '?*+{'.includes(q) && i < to && '?*+{'.includes(source[i])) {
+      throw new PatternSyntaxError('Quantificadores encadeados não são suportados');
+    }
+
+    // Expansão: min posições obrigatórias, depois opcionais ou uma repetível
+    for (let r = 0; r < min; r++) {
+      masks.push(mask);
+      stars.push(false);
+      optional.push(false);
+    }
+    if (max === -1) {
+      masks.push(mask);
+      stars.push(true);
+      optional.push(true);
+    } else {
+      for (let r = min; r < max; r++) {
+        masks.push(mask);
+        stars.push(false);
+        optional.push(true);
+      }
+    }
+    if (masks.length > MAX_POSITIONS) {
+      throw new PatternSyntaxError(`Padrão complexo demais (máximo de ${MAX_POSITIONS} posições)`);
+    }
+  }
+
+  const k = masks.length;
+  const acceptBit = (1 << k) >>> 0;
+  const closures = new Array<number>(k + 1);
+  closures[k] = acceptBit;
+  for (let p = k - 1; p >= 0; p--) {
+    closures[p] = ((1 << p) | (optional[p] ? closures[p + 1] : 0)) >>> 0;
+  }
+  return { masks, stars, closures, acceptBit, anchoredStart, anchoredEnd };
+}
+
+export type MatchResult = 'match' | 'no_match' | 'budget_exceeded';
+
+export class DigitPattern {
+  private constructor(
+    readonly source: string,
+    private readonly programs: Program[]
+  ) {}
+
+  /**
+   * Compila um padrão
+   * @throws PatternSyntaxError se usar construções fora do dialeto ou for grande demais
+   */
+  static compile(source: string): DigitPattern {
+    if (!source) throw new PatternSyntaxError('Padrão vazio');
+    if (source.length > MAX_SOURCE_LENGTH) throw new PatternSyntaxError('Padrão longo demais');
+    return new DigitPattern(source, splitAlternatives(source).map(compileAlternative));
+  }
+
+  /**
+   * Mensagem de erro para um padrão inválido, ou null se ele for aceito
+   */
+  static validate(source: string): string | null {
+    try {
+      DigitPattern.compile(source);
+      return null;
+    } catch (error) {
+      if (error instanceof PatternSyntaxError) return error.message;
+      throw error;
+    }
+  }
+
+  /**
+   * Verifica se o padrão ocorre no texto (estourar o orçamento conta como não correspondência)
+   */
+  test(input: string): boolean {
+    return this.match(input) === 'match';
+  }
+
+  match(input: string, stepBudget = DEFAULT_STEP_BUDGET): MatchResult {
+    let budget = stepBudget;
+    for (const program of this.programs) {
+      let state = program.closures[0];
+      if (!program.anchoredEnd && (state & program.acceptBit) !== 0) return 'match';
+
+      let i = 0;
+      for (; i < input.length; i++) {
+        const bit = 1 << symbol(input.charCodeAt(i));
+        let next = 0;
+        let active = (state & ~program.acceptBit) >>> 0;
+        while (active !== 0) {
+          if (--budget < 0) return 'budget_exceeded';
+          const p = 31 - Math.clz32(active & -active);
+          active = (active & (active - 1)) >>> 0;
+          if ((program.masks[p] & bit) !== 0) {
+            next |= program.closures[program.stars[p] ? p : p + 1];
+          }
+        }
+        if (!program.anchoredStart) next |= program.closures[0];
+        state = next >>> 0;
+        if (!program.anchoredEnd && (state & program.acceptBit) !== 0) return 'match';
+        if (state === 0) break;
+      }
+      if (program.anchoredEnd && (state & program.acceptBit) !== 0) return 'match';
+    }
+    return 'no_match';
+  }
+}
+
+// Testes das entradas "pattern" já compiladas, por texto do padrão
+const MAX_CACHED_ENTRY_PATTERNS = 1024;
+const entryTests = new Map<string, (value: string) => boolean>();
+
+/**
+ * Teste de uma entrada "pattern" da lista personalizada, compilado uma vez por texto do padrão.
+ * Entradas antigas fora do dialeto seguro (ex.: "+5511") continuam valendo como trecho literal,
+ * tanto na triagem quanto nas consultas à lista.
+ */
+export function patternEntryTest(source: string): (value: string) => boolean {
+  let test = entryTests.get(source);
+  if (!test) {
+    try {
+      const pattern = DigitPattern.compile(source);
+      test = value => pattern.test(value);
+    } catch (error) {
+      if (!(error instanceof PatternSyntaxError)) throw error;
+      test = value => value.includes(source);
+    }
+    if (entryTests.size >= MAX_CACHED_ENTRY_PATTERNS) entryTests.clear();
+    entryTests.set(source, test);
+  }
+  return test;
+}
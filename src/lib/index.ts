@@ -5,4 +5,5 @@ export { CallManager, generateCallStats } from './callUtils';
 export { CustomListManager } from './customListUtils';
 export { PhoneUtils } from './phoneUtils';
 export { IPUtils } from './ipUtils';
+export { RulePipeline } from './rulePipeline';
 export { cn } from './utils';
\ No newline at end of file
@@ -0,0 +1,62 @@
+import { describe, it, expect } from 'vitest';
+import { RangeIndex, parseRangeValue } from './rangeIndex';
+
+describe('RangeIndex', () => {
+  it('deve interpretar faixas no formato início..fim', () => {
+    expect(parseRangeValue('+551140000000..+551140009999')).toEqual({
+      digits: 12,
+      start: 551140000000,
+      end: 551140009999
+    });
+  });
+
+  it('deve interpretar máscaras com X finais', () => {
+    expect(parseRangeValue('+55 11 4000-XXXX')).toEqual({
+      digits: 12,
+      start: 551140000000,
+      end: 551140009999
+    });
+  });
+
+  it('deve rejeitar faixas inválidas', () => {
+    expect(parseRangeValue('+5511')).toBe(null);
+    expect(parseRangeValue('1..22')).toBe(null);
+    expect(parseRangeValue('200..100')).toBe(null);
+  });
+
+  it('deve encontrar números dentro das faixas', () => {
+    const index = RangeIndex.build([parseRangeValue('+55 11 4000-XXXX')!]);
+
+    expect(index.contains('+551140005555')).toBe(true);
+    expect(index.contains('+551140010000')).toBe(false);
+    // Mesmo valor numérico com outra quantidade de dígitos não pertence à faixa
+    expect(index.contains('+5511400')).toBe(false);
+  });
+
+  it('deve mesclar faixas sobrepostas e adjacentes', () => {
+    const index = RangeIndex.build([
+      parseRangeValue('+551140000000..+551140009999')!,
+      parseRangeValue('+551140010000..+551140019999')!,
+      parseRangeValue('+551150000000..+551150000100')!,
+      parseRangeValue('+551150000050..+551150000200')!
+    ]);
+
+    expect(index.size).toBe(2);
+    expect(index.contains('+551140015000')).toBe(true);
+    expect(index.contains('+551150000150')).toBe(true);
+    expect(index.contains('+551150000201')).toBe(false);
+  });
+
+  it('deve responder em tempo logarítmico para feeds grandes', () => {
+    const ranges = Array.from({ length: 50000 }, (_, i) => {
+      const start = 551100000000 + i * 1000;
+      return { digits: 12, start, end: start + 499 };
+    });
+    const index = RangeIndex.build(ranges);
+
+    expect(index.size).toBe(50000);
+    expect(index.contains('+551100000250')).toBe(true);
+    expect(index.contains('+551100000750')).toBe(false);
+    expect(index.contains('+551149999100')).toBe(true);
+  });
+});
@@ -0,0 +1,162 @@
+/**
+ * Índice de faixas numéricas para entradas do tipo "range"
+ *
+ * Formatos aceitos: "início..fim" (ex.: "+551140000000..+551140009999") ou uma máscara
+ * com X finais (ex.: "+55 11 4000-XXXX"). Início e fim precisam ter o mesmo número de dígitos.
+ * As faixas são mescladas e guardadas em Float64Array ordenados por comprimento do número;
+ * a busca é binária, sem criar objetos por entrada.
+ */
+export interface NumericRange {
+  digits: number;
+  start: number;
+  end: number;
+}
+
+// Números com até 15 dígitos cabem exatamente em um double (< 2^53)
+const MAX_DIGITS = 15;
+
+/**
+ * Converte os dígitos de um número em valor numérico
+ * @returns dígitos e valor, ou null se não houver dígitos ou houver mais de 15
+ */
+export function numericKey(phoneNumber: string): { digits: number; value: number } | null {
+  let value = 0;
+  let digits = 0;
+  for (let i = 0; i < phoneNumber.length; i++) {
+    const code = phoneNumber.charCodeAt(i);
+    if (code >= 48 && code <= 57) {
+      if (digits === MAX_DIGITS) return null;
+      value = value * 10 + (code - 48);
+      digits++;
+    }
+  }
+  return digits === 0 ? null : { digits, value };
+}
+
+/**
+ * Interpreta o valor de uma entrada do tipo "range"
+ */
+export function parseRangeValue(rangeValue: string): NumericRange | null {
+  let start: ReturnType<typeof numericKey>;
+  let end: ReturnType<typeof numericKey>;
+
+  const separator = rangeValue.indexOf('..');
+  if (separator >= 0) {
+    start = numericKey(rangeValue.slice(0, separator));
+    end = numericKey(rangeValue.slice(separator + 2));
+  } else {
+    const match = /^(.*?)([Xx\s-]*[Xx][Xx\s-]*)$/.exec(rangeValue.trim());
+    if (!match) return null;
+    start = numericKey(match[1] + match[2].replace(/[Xx]/g, '0'));
+    end = numericKey(match[1] + match[2].replace(/[Xx]/g, '9'));
+  }
+
+  if (!start || !end || start.digits !== end.digits || start.value > end.value) {
+    return null;
+  }
+  return { digits: start.digits, start: start.value, end: end.value };
+}
+
+export class RangeIndex {
+  private constructor(
+    // Índice por quantidade de dígitos: [inícios, fins] mesclados e ordenados
+    private readonly byDigits: Map<number, [Float64Array, Float64Array]>
+  ) {}
+
+  static readonly EMPTY = new RangeIndex(new Map());
+
+  /**
+   * Constrói o índice mesclando faixas sobrepostas e adjacentes
+   */
+  static build(ranges: NumericRange[]): RangeIndex {
+    if (ranges.length === 0) return RangeIndex.EMPTY;
+
+    const grouped = new Map<number, NumericRange[]>();
+    for (const range of ranges) {
+      const group = grouped.get(range.digits);
+      if (group) group.push(range);
+      else grouped.set(range.digits, [range]);
+    }
+
+    const byDigits = new Map<number, [Float64Array, Float64Array]>();
+    grouped.forEach((group, digits) => {
+      // A união de intervalos só depende dos conjuntos de inícios e fins,
+      // então os dois arrays podem ser ordenados de forma independente
+      const starts = Float64Array.from(group, r => r.start).sort();
+      const ends = Float64Array.from(group, r => r.end).sort();
+
+      const mergedStarts = new Float64Array(group.length);
+      const mergedEnds = new Float64Array(group.length);
+      let merged = 0;
+      let i = 0;
+      let depth = 0;
+      let currentStart = 0;
+      for (let j = 0; j < ends.length; ) {
+        // Um início adjacente ao fim atual (fim + 1) continua a mesma faixa
+        if (i < starts.length && starts[i] <= ends[j] + 1) {
+          if (depth === 0) currentStart = starts[i];
+          depth++;
+          i++;
+        } else {
+          depth--;
+          if (depth === 0) {
+            mergedStarts[merged] = currentStart;
+            mergedEnds[merged] = ends[j];
+            merged++;
+          }
+          j++;
+        }
+      }
+      byDigits.set(digits, [mergedStarts.slice(0, merged), mergedEnds.slice(0, merged)]);
+    });
+
+    return new RangeIndex(byDigits);
+  }
+
+  /**
+   * Verifica se o número está em alguma faixa - O(log n)
+   */
+  contains(phoneNumber: string): boolean {
+    // Extração dos dígitos sem alocação (equivalente a numericKey)
+    let value = 0;
+    let digits = 0;
+    for (let i = 0; i < phoneNumber.length; i++) {
+      const code = phoneNumber.charCodeAt(i);
+      if (code >= 48 && code <= 57) {
+        if (digits === MAX_DIGITS) return false;
+        value = value * 10 + (code - 48);
+        digits++;
+      }
+    }
+
+    const arrays = this.byDigits.get(digits);
+    if (!arrays) return false;
+    const [starts, ends] = arrays;
+
+    // Última faixa cujo início é <= valor
+    let low = 0;
+    let high = starts.length - 1;
+    let found = -1;
+    while (low <= high) {
+      const mid = (low + high) >>> 1;
+      if (starts[mid] <= value) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return found >= 0 && ends[found] >= value;
+  }
+
+  /**
+   * Quantidade de faixas após a mescla
+   */
+  get size(): number {
+    let total = 0;
+    this.byDigits.forEach(([starts]) => {
+      total += starts.length;
+    });
+    return total;
+  }
+}
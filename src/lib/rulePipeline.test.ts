@@ -0,0 +1,87 @@
+import { describe, it, expect } from 'vitest';
+import { RulePipeline, RuleStage } from './rulePipeline';
+
+describe('RulePipeline', () => {
+  // Relógio falso: cada estágio "custa" o valor definido em costs
+  const createClockedStages = (costs: Record<string, number>, clock: { time: number }) => {
+    const stage = (name: string, tier: number, hit: (n: number) => boolean): RuleStage<number, string> => ({
+      name,
+      tier,
+      evaluate: (n) => {
+        clock.time += costs[name];
+        return hit(n) ? name : null;
+      }
+    });
+    return stage;
+  };
+
+  it('deve retornar o primeiro resultado decisivo na ordem de declaração', () => {
+    const pipeline = new RulePipeline<number, string>([
+      { name: 'a', tier: 0, evaluate: () => null },
+      { name: 'b', tier: 0, evaluate: () => 'b' },
+      { name: 'c', tier: 0, evaluate: () => 'c' }
+    ]);
+
+    expect(pipeline.evaluate(1)).toBe('b');
+    expect(pipeline.describeOrder().map(s => s.name)).toEqual(['a', 'b', 'c']);
+  });
+
+  it('deve retornar null quando nenhum estágio decide', () => {
+    const pipeline = new RulePipeline<number, string>([
+      { name: 'a', tier: 0, evaluate: () => null }
+    ]);
+
+    expect(pipeline.evaluate(1)).toBe(null);
+  });
+
+  it('deve promover estágios baratos e decisivos dentro do mesmo tier', () => {
+    const clock = { time: 0 };
+    const stage = createClockedStages({ caro: 10, barato: 1 }, clock);
+    const pipeline = new RulePipeline<number, string>(
+      [
+        stage('caro', 1, n => n % 10 === 0),
+        stage('barato', 1, n => n % 2 === 1)
+      ],
+      { reorderInterval: 100, timingSampleRate: 1, now: () => clock.time }
+    );
+
+    for (let i = 0; i < 100; i++) {
+      pipeline.evaluate(i);
+    }
+
+    expect(pipeline.describeOrder().map(s => s.name)).toEqual(['barato', 'caro']);
+  });
+
+  it('nunca deve mover estágios entre tiers', () => {
+    const clock = { time: 0 };
+    const stage = createClockedStages({ permitir: 50, bloquear: 1 }, clock);
+    const pipeline = new RulePipeline<number, string>(
+      [
+        stage('bloquear', 1, () => true),
+        stage('permitir', 0, n => n === 7)
+      ],
+      { reorderInterval: 10, timingSampleRate: 1, now: () => clock.time }
+    );
+
+    for (let i = 0; i < 50; i++) {
+      pipeline.evaluate(i);
+    }
+
+    expect(pipeline.describeOrder().map(s => s.name)).toEqual(['permitir', 'bloquear']);
+    // A permissão continua vencendo o bloqueio
+    expect(pipeline.evaluate(7)).toBe('permitir');
+  });
+
+  it('deve expor estatísticas de avaliações e acertos', () => {
+    const pipeline = new RulePipeline<number, string>([
+      { name: 'par', tier: 0, evaluate: n => (n % 2 === 0 ? 'par' : null) }
+    ]);
+
+    pipeline.evaluate(1);
+    pipeline.evaluate(2);
+
+    const [stats] = pipeline.describeOrder();
+    expect(stats.evaluations).toBe(2);
+    expect(stats.hits).toBe(1);
+  });
+});
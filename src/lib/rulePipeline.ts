@@ -0,0 +1,119 @@
+/**
+ * Pipeline de regras com ordenação adaptativa
+ *
+ * Estágios de tiers menores sempre rodam antes (precedência, ex.: permitir antes de bloquear).
+ * Dentro do mesmo tier os estágios são independentes e são reordenados periodicamente
+ * pelo custo esperado por decisão (custo médio / taxa de acerto).
+ */
+export interface RuleStage<TInput, TResult> {
+  name: string;
+  tier: number;
+  /** Retorna um resultado decisivo ou null para seguir ao próximo estágio */
+  evaluate(input: TInput): TResult | null;
+}
+
+export interface RuleStageStats {
+  name: string;
+  tier: number;
+  evaluations: number;
+  hits: number;
+  averageCost: number;
+}
+
+interface StageState<TInput, TResult> {
+  stage: RuleStage<TInput, TResult>;
+  evaluations: number;
+  hits: number;
+  sampledEvaluations: number;
+  sampledCost: number;
+}
+
+export interface RulePipelineOptions {
+  /** Reordenar a cada N avaliações */
+  reorderInterval?: number;
+  /** Medir o custo em 1 de cada N avaliações */
+  timingSampleRate?: number;
+  /** Relógio usado para medir o custo (ms) */
+  now?: () => number;
+}
+
+export class RulePipeline<TInput, TResult> {
+  private order: StageState<TInput, TResult>[];
+  private evaluationCount = 0;
+  private readonly reorderInterval: number;
+  private readonly timingSampleRate: number;
+  private readonly now: () => number;
+
+  constructor(stages: RuleStage<TInput, TResult>[], options: RulePipelineOptions = {}) {
+    this.reorderInterval = options.reorderInterval ?? 256;
+    this.timingSampleRate = options.timingSampleRate ?? 16;
+    this.now = options.now ?? (() => performance.now());
+
+    // Array.prototype.sort é estável: a ordem de declaração é mantida dentro de cada tier
+    this.order = stages
+      .map(stage => ({ stage, evaluations: 0, hits: 0, sampledEvaluations: 0, sampledCost: 0 }))
+      .sort((a, b) => a.stage.tier - b.stage.tier);
+  }
+
+  /**
+   * Avalia os estágios na ordem atual e retorna o primeiro resultado decisivo
+   */
+  evaluate(input: TInput): TResult | null {
+    const count = ++this.evaluationCount;
+    const timed = count % this.timingSampleRate === 0;
+    let result: TResult | null = null;
+
+    for (const state of this.order) {
+      const start = timed ? this.now() : 0;
+      result = state.stage.evaluate(input);
+      if (timed) {
+        state.sampledCost += this.now() - start;
+        state.sampledEvaluations++;
+      }
+      state.evaluations++;
+      if (result !== null) {
+        state.hits++;
+        break;
+      }
+    }
+
+    if (count % this.reorderInterval === 0) {
+      this.reorder();
+    }
+    return result;
+  }
+
+  /**
+   * Reordena os estágios dentro de cada tier pelo custo esperado por decisão
+   */
+  reorder(): void {
+    this.order = [...this.order].sort((a, b) =>
+      a.stage.tier !== b.stage.tier
+        ? a.stage.tier - b.stage.tier
+        : RulePipeline.rank(a) - RulePipeline.rank(b)
+    );
+  }
+
+  /**
+   * Ordem atual dos estágios com estatísticas, para depuração
+   */
+  describeOrder(): RuleStageStats[] {
+    return this.order.map(state => ({
+      name: state.stage.name,
+      tier: state.stage.tier,
+      evaluations: state.evaluations,
+      hits: state.hits,
+      averageCost: RulePipeline.averageCost(state)
+    }));
+  }
+
+  private static averageCost<I, R>(state: StageState<I, R>): number {
+    return state.sampledEvaluations === 0 ? 0 : state.sampledCost / state.sampledEvaluations;
+  }
+
+  private static rank<I, R>(state: StageState<I, R>): number {
+    // Suavização de Laplace para estágios ainda sem histórico; custo mínimo evita empate em zero
+    const hitRate = (state.hits + 1) / (state.evaluations + 2);
+    return (RulePipeline.averageCost(state) + 1e-6) / hitRate;
+  }
+}
@@ -66,12 +66,16 @@ export interface BlockSettings {
   blockUnknownServers: boolean;
   blockNoValidNumber: boolean;
   blockSuspiciousIP: boolean;
+  // Apenas Android 11+: bloqueia chamadas reprovadas na verificação STIR/SHAKEN (padrão: true)
+  blockFailedVerification?: boolean;
+  // Apenas Android: bloqueia chamadas que o modelo de spam no dispositivo pontua como spam (padrão: false)
+  blockSpamScore?: boolean;
 }
 
 export interface CustomListEntry {
   id: string;
   value: string;
-  type: 'ip' | 'phone' | 'pattern';
+  type: 'ip' | 'phone' | 'pattern' | 'range';
   isBlocked: boolean;
   addedAt: number;
   notes?: string;
@@ -82,4 +86,20 @@ export interface NotificationSetting {
   showSummaryNotifications: boolean;
   notificationSound: boolean;
   notificationVibration: boolean;
-}
\ No newline at end of file
+}
+
+// Linha (SIM ou conta SIP) que recebe chamadas no aparelho; apenas Android
+export interface PhoneAccountInfo {
+  id: string;
+  label: string;
+  address: string;
+  // A linha tem política própria (configurações/regras); caso contrário usa as globais
+  configured: boolean;
+}
+
+// Política própria de uma linha: configurações sobrescritas e regras que precedem a lista global
+export interface AccountPolicy {
+  accountId: string;
+  settings?: Partial<Pick<BlockSettings, 'blockAnonymous' | 'blockNoValidNumber' | 'blockFailedVerification' | 'blockSpamScore'>>;
+  entries: Pick<CustomListEntry, 'type' | 'value' | 'isBlocked'>[];
+}